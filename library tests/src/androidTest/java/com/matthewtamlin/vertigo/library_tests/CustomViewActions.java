@@ -21,6 +21,7 @@ import android.support.test.espresso.ViewAction;
 import android.view.View;
 
 import com.matthewtamlin.vertigo.library.SimpleVertigoCoordinator;
+import com.matthewtamlin.vertigo.library.TransitionSpec;
 import com.matthewtamlin.vertigo.library.VertigoCoordinator.ActiveViewChangedListener;
 import com.matthewtamlin.vertigo.library.VertigoView;
 
@@ -114,4 +115,32 @@ public class CustomViewActions {
 			}
 		};
 	}
+
+	/**
+	 * Creates a ViewAction which changes the transition spec of a SimpleVertigoCoordinator.
+	 *
+	 * The returned ViewAction can only be applied to a SimpleVertigoCoordinator.
+	 *
+	 * @param transitionSpec
+	 * 		the transition spec to use, not null
+	 * @return the ViewAction
+	 */
+	public static ViewAction setTransitionSpec(final TransitionSpec transitionSpec) {
+		return new ViewAction() {
+			@Override
+			public Matcher<View> getConstraints() {
+				return isAssignableFrom(SimpleVertigoCoordinator.class);
+			}
+
+			@Override
+			public String getDescription() {
+				return "set transition spec to " + transitionSpec;
+			}
+
+			@Override
+			public void perform(final UiController uiController, final View view) {
+				((SimpleVertigoCoordinator) view).setTransitionSpec(transitionSpec);
+			}
+		};
+	}
 }
\ No newline at end of file
@@ -100,4 +100,28 @@ public class CustomViewAssertions {
 			}
 		};
 	}
+
+	/**
+	 * Creates a ViewAssertion which can be applied to a VertigoView to check that it has been faded
+	 * out in place. The ViewAssertion can only be applied to a non-null VertigoView.
+	 *
+	 * @param coordinator
+	 * 		the coordinator the VertigoView is in, not null
+	 * @return the ViewAssertion
+	 */
+	public static ViewAssertion isFadedOut(final SimpleVertigoCoordinator coordinator) {
+		return new ViewAssertion() {
+			@Override
+			public void check(final View view, final NoMatchingViewException noViewFoundException) {
+				if (view == null || !(view instanceof VertigoView)) {
+					throw new AssertionError("view must be a non-null instance of VertigoView");
+				} else {
+					assertThat("view has wrong y position.", view.getY(), is(coordinator.getY()));
+					assertThat("view has wrong alpha.", view.getAlpha(), is(0f));
+					assertThat("view has wrong visibility.", view.getVisibility(),
+							is(View.INVISIBLE));
+				}
+			}
+		};
+	}
 }
\ No newline at end of file
@@ -16,12 +16,28 @@
 
 package com.matthewtamlin.vertigo.library_tests;
 
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
 import android.support.test.espresso.ViewInteraction;
 import android.support.test.rule.ActivityTestRule;
 import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
+import com.matthewtamlin.vertigo.library.ActivationSequence;
+import com.matthewtamlin.vertigo.library.FadeTransitionSpec;
+import com.matthewtamlin.vertigo.library.PlainVertigoView;
 import com.matthewtamlin.vertigo.library.SimpleVertigoCoordinator;
+import com.matthewtamlin.vertigo.library.TransitionHandle;
+import com.matthewtamlin.vertigo.library.TransitionScheduler;
+import com.matthewtamlin.vertigo.library.VertigoCoordinator;
 import com.matthewtamlin.vertigo.library.VertigoCoordinator.ActiveViewChangedListener;
 import com.matthewtamlin.vertigo.library.VertigoFrameLayout;
 import com.matthewtamlin.vertigo.library.VertigoView;
@@ -31,16 +47,39 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static android.view.View.IMPORTANT_FOR_ACCESSIBILITY_AUTO;
+import static android.view.View.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS;
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
 import static com.matthewtamlin.android_testing_tools.library.EspressoHelper.viewToViewInteraction;
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.CANCELLED;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.COMPLETED;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.DROPPED;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.SUPERSEDED;
 import static com.matthewtamlin.vertigo.library.VertigoView.State.ACTIVE;
 import static com.matthewtamlin.vertigo.library.VertigoView.State.INACTIVE;
 import static com.matthewtamlin.vertigo.library_tests.CustomViewActions.addViewAndRegister;
 import static com.matthewtamlin.vertigo.library_tests.CustomViewActions.makeViewActive;
+import static com.matthewtamlin.vertigo.library_tests.CustomViewActions.setTransitionSpec;
 import static com.matthewtamlin.vertigo.library_tests.CustomViewAssertions.hasState;
+import static com.matthewtamlin.vertigo.library_tests.CustomViewAssertions.isFadedOut;
 import static com.matthewtamlin.vertigo.library_tests.CustomViewAssertions.isInDownPosition;
 import static com.matthewtamlin.vertigo.library_tests.CustomViewAssertions.isInUpPosition;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -69,6 +108,36 @@ public class TestSimpleVertigoCoordinator {
 	 */
 	private static final String FRONT_SUBVIEW_KEY = "front subview";
 
+	/**
+	 * A key which uniquely identifies the back subview of the nested coordinator.
+	 */
+	private static final String INNER_BACK_SUBVIEW_KEY = "inner back subview";
+
+	/**
+	 * A key which uniquely identifies the front subview of the nested coordinator.
+	 */
+	private static final String INNER_FRONT_SUBVIEW_KEY = "inner front subview";
+
+	/**
+	 * A key which identifies the layout inflated in the background.
+	 */
+	private static final String ASYNC_VIEW_KEY = "async view";
+
+	/**
+	 * A key which identifies a subview which counts its position updates.
+	 */
+	private static final String COUNTING_SUBVIEW_KEY = "counting subview";
+
+	/**
+	 * A key which identifies a subview which records its clip bounds.
+	 */
+	private static final String RECORDING_SUBVIEW_KEY = "recording subview";
+
+	/**
+	 * A snapshot cache size which is large enough to hold a snapshot of the test view.
+	 */
+	private static final int SNAPSHOT_CACHE_SIZE_BYTES = 64 * 1024 * 1024;
+
 	/**
 	 * Hosts a SimpleVertigoView.
 	 */
@@ -398,6 +467,1678 @@ public class TestSimpleVertigoCoordinator {
 		verify(listener, times(1)).onActiveViewChanged(testViewDirect, frontSubviewDirect);
 	}
 
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#makeViewActive(String, boolean,
+	 * ActiveViewChangedListener)} method functions correctly when a FadeTransitionSpec is used.
+	 * This test examines the case where animations are enabled. The test will only pass if the
+	 * views which were moved down are faded out in place and the correct callback is delivered.
+	 */
+	@Test
+	public void testMakeViewActive_usingFadeTransitionSpec() {
+		testViewEspresso.perform(setTransitionSpec(new FadeTransitionSpec()));
+		testViewEspresso.perform(makeViewActive(BACK_SUBVIEW_KEY, true, listener));
+
+		backSubviewEspresso.check(hasState(ACTIVE, "back subview"));
+		middleSubviewEspresso.check(hasState(INACTIVE, "middle subview"));
+		frontSubviewEspresso.check(hasState(INACTIVE, "front subview"));
+
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isFadedOut(testViewDirect));
+		frontSubviewEspresso.check(isFadedOut(testViewDirect));
+
+		verify(listener, only()).onActiveViewChanged(testViewDirect, backSubviewDirect);
+	}
+
+	/**
+	 * Test to ensure that the {@link FadeTransitionSpec} does not change the visibility of views
+	 * which the app has made gone. The test will only pass if the gone view stays gone after
+	 * moving to the down position and after returning to the up position.
+	 */
+	@Test
+	public void testMakeViewActive_usingFadeTransitionSpec_goneViewStaysGone() {
+		testViewEspresso.perform(setTransitionSpec(new FadeTransitionSpec()));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				middleSubviewDirect.setVisibility(View.GONE);
+			}
+		});
+
+		testViewEspresso.perform(makeViewActive(BACK_SUBVIEW_KEY, true, null));
+
+		assertThat(middleSubviewDirect.getVisibility(), is(View.GONE));
+
+		testViewEspresso.perform(makeViewActive(MIDDLE_SUBVIEW_KEY, false, null));
+
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		assertThat(middleSubviewDirect.getVisibility(), is(View.GONE));
+	}
+
+	/**
+	 * Test to ensure that the {@link FadeTransitionSpec} does not show views which the app made
+	 * invisible. The test will only pass if the invisible view stays invisible after moving to the
+	 * down position and after returning to the up position.
+	 */
+	@Test
+	public void testMakeViewActive_usingFadeTransitionSpec_invisibleViewStaysInvisible() {
+		testViewEspresso.perform(setTransitionSpec(new FadeTransitionSpec()));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				middleSubviewDirect.setVisibility(View.INVISIBLE);
+			}
+		});
+
+		testViewEspresso.perform(makeViewActive(BACK_SUBVIEW_KEY, true, null));
+
+		assertThat(middleSubviewDirect.getVisibility(), is(View.INVISIBLE));
+		assertThat(frontSubviewDirect.getVisibility(), is(View.INVISIBLE));
+
+		testViewEspresso.perform(makeViewActive(MIDDLE_SUBVIEW_KEY, true, null));
+
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		assertThat(middleSubviewDirect.getVisibility(), is(View.INVISIBLE));
+		assertThat(frontSubviewDirect.getVisibility(), is(View.INVISIBLE));
+
+		testViewEspresso.perform(makeViewActive(FRONT_SUBVIEW_KEY, true, null));
+
+		assertThat(frontSubviewDirect.getVisibility(), is(View.VISIBLE));
+	}
+
+	/**
+	 * Test to ensure that listeners registered using {@link
+	 * SimpleVertigoCoordinator#addActiveViewChangedListener(ActiveViewChangedListener)} are notified
+	 * of every change of the active view, and are not notified after being removed. The test will
+	 * only pass if the registered listener receives exactly the expected callbacks.
+	 */
+	@Test
+	public void testAddAndRemoveActiveViewChangedListener() {
+		testViewDirect.addActiveViewChangedListener(listener);
+
+		testViewEspresso.perform(makeViewActive(MIDDLE_SUBVIEW_KEY, false, null));
+		testViewEspresso.perform(makeViewActive(BACK_SUBVIEW_KEY, true, null));
+
+		verify(listener, times(1)).onActiveViewChanged(testViewDirect, middleSubviewDirect);
+		verify(listener, times(1)).onActiveViewChanged(testViewDirect, backSubviewDirect);
+
+		testViewDirect.removeActiveViewChangedListener(listener);
+
+		testViewEspresso.perform(makeViewActive(FRONT_SUBVIEW_KEY, false, null));
+
+		verify(listener, never()).onActiveViewChanged(testViewDirect, frontSubviewDirect);
+	}
+
+	/**
+	 * Test to ensure that the handles returned by {@link
+	 * SimpleVertigoCoordinator#makeViewActive(String, boolean)} report the correct outcomes. The
+	 * test will only pass if a request made while another transition is running is dropped,
+	 * cancelling the running transition jumps the views to their final positions, and a request
+	 * for the active view completes immediately. The test is skipped if the device has animations
+	 * disabled, since no transition is ever running in that case.
+	 */
+	@Test
+	public void testMakeViewActive_returnedHandleReportsOutcome() {
+		final TransitionHandle[] handles = new TransitionHandle[3];
+		final boolean[] animating = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handles[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+				animating[0] = !handles[0].isFinished();
+
+				handles[1] = testViewDirect.makeViewActive(MIDDLE_SUBVIEW_KEY, true);
+
+				handles[0].cancel();
+
+				handles[2] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+			}
+		});
+
+		assumeTrue(animating[0]);
+
+		assertThat(handles[0].getOutcome(), is(CANCELLED));
+		assertThat(handles[1].getOutcome(), is(DROPPED));
+		assertThat(handles[2].getOutcome(), is(COMPLETED));
+
+		backSubviewEspresso.check(hasState(ACTIVE, "back subview"));
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isInDownPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#playSequence(ActivationSequence)}
+	 * method plays every step in order. The test will only pass if each view is made active in
+	 * turn, the views finish in the correct locations and the handle reports completion.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the sequence to finish
+	 */
+	@Test
+	public void testPlaySequence() throws Exception {
+		final ActivationSequence sequence = new ActivationSequence.Builder()
+				.addStep(BACK_SUBVIEW_KEY, 50, 20)
+				.addStep(MIDDLE_SUBVIEW_KEY, 50, 20)
+				.build();
+
+		final TransitionHandle[] handle = new TransitionHandle[1];
+		testViewDirect.addActiveViewChangedListener(listener);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handle[0] = testViewDirect.playSequence(sequence);
+			}
+		});
+
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+
+		backSubviewEspresso.check(hasState(INACTIVE, "back subview"));
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		frontSubviewEspresso.check(hasState(INACTIVE, "front subview"));
+
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+
+		verify(listener, times(1)).onActiveViewChanged(testViewDirect, backSubviewDirect);
+		verify(listener, times(1)).onActiveViewChanged(testViewDirect, middleSubviewDirect);
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#playSequence(ActivationSequence)}
+	 * method completes the sequence at once when the coordinator cannot be seen. The test will
+	 * only pass if the handle reports completion before the method returns despite the dwell
+	 * times, and the views finish in the correct states and locations.
+	 */
+	@Test
+	public void testPlaySequence_coordinatorHidden() {
+		final ActivationSequence sequence = new ActivationSequence.Builder()
+				.addStep(BACK_SUBVIEW_KEY, 50, 5000)
+				.addStep(MIDDLE_SUBVIEW_KEY, 50, 5000)
+				.build();
+
+		final TransitionHandle[] handle = new TransitionHandle[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setVisibility(View.INVISIBLE);
+				handle[0] = testViewDirect.playSequence(sequence);
+				testViewDirect.setVisibility(View.VISIBLE);
+			}
+		});
+
+		assertThat(handle[0].isFinished(), is(true));
+		assertThat(handle[0].getOutcome(), is(COMPLETED));
+
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that hiding the coordinator during a transition jumps the transition to its
+	 * end state. The test will only pass if the transition completes when the coordinator is
+	 * hidden, the listener is notified, and a later animated request is accepted rather than
+	 * rejected by a transition counter left over from the cancelled animator. The test is skipped
+	 * if the device has animations disabled, since no transition is ever running in that case.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the later transition to finish
+	 */
+	@Test
+	public void testSetVisibility_fastForwardsTransition() throws Exception {
+		final TransitionHandle[] handles = new TransitionHandle[2];
+		final boolean[] animating = new boolean[1];
+		testViewDirect.addActiveViewChangedListener(listener);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handles[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+				animating[0] = !handles[0].isFinished();
+				testViewDirect.setVisibility(View.INVISIBLE);
+			}
+		});
+
+		assumeTrue(animating[0]);
+
+		assertThat(handles[0].getOutcome(), is(COMPLETED));
+		assertThat(testViewDirect.getSnapshot().isTransitionInProgress(), is(false));
+		verify(listener, only()).onActiveViewChanged(testViewDirect, backSubviewDirect);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setVisibility(View.VISIBLE);
+				handles[1] = testViewDirect.makeViewActive(MIDDLE_SUBVIEW_KEY, true);
+			}
+		});
+
+		assertThat(handles[1].await(2, SECONDS), is(COMPLETED));
+
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that hiding the window of the coordinator during a transition jumps the
+	 * transition to its end state. The test will only pass if the transition completes when the
+	 * window is hidden, and a later request is accepted. The test is skipped if the device has
+	 * animations disabled, since no transition is ever running in that case.
+	 */
+	@Test
+	public void testOnWindowVisibilityChanged_fastForwardsTransition() {
+		final TransitionHandle[] handles = new TransitionHandle[2];
+		final boolean[] animating = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handles[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+				animating[0] = !handles[0].isFinished();
+
+				testViewDirect.dispatchWindowVisibilityChanged(View.GONE);
+				handles[1] = testViewDirect.makeViewActive(MIDDLE_SUBVIEW_KEY, true);
+				testViewDirect.dispatchWindowVisibilityChanged(View.VISIBLE);
+			}
+		});
+
+		assumeTrue(animating[0]);
+
+		assertThat(handles[0].getOutcome(), is(COMPLETED));
+		assertThat(handles[1].getOutcome(), is(COMPLETED));
+
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that detaching the coordinator from its window during a transition jumps the
+	 * transition to its end state. The test will only pass if the transition completes when the
+	 * coordinator is detached, and an animated request made after it is attached again is
+	 * accepted. The test is skipped if the device has animations disabled, since no transition is
+	 * ever running in that case.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the later transition to finish
+	 */
+	@Test
+	public void testOnDetachedFromWindow_fastForwardsTransition() throws Exception {
+		final TransitionHandle[] handles = new TransitionHandle[2];
+		final boolean[] animating = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handles[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+				animating[0] = !handles[0].isFinished();
+
+				final ViewGroup parent = (ViewGroup) testViewDirect.getParent();
+				final int index = parent.indexOfChild(testViewDirect);
+				final ViewGroup.LayoutParams params = testViewDirect.getLayoutParams();
+
+				parent.removeView(testViewDirect);
+				parent.addView(testViewDirect, index, params);
+			}
+		});
+
+		assumeTrue(animating[0]);
+
+		assertThat(handles[0].getOutcome(), is(COMPLETED));
+
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handles[1] = testViewDirect.makeViewActive(MIDDLE_SUBVIEW_KEY, true);
+			}
+		});
+
+		assertThat(handles[1].await(2, SECONDS), is(COMPLETED));
+
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#bindState(String, Set)} method
+	 * replaces a running transition. The test will only pass if the transition reports that it was
+	 * superseded, the views finish in the bound locations and states, and the active view listener
+	 * is never called.
+	 */
+	@Test
+	public void testBindState_replacesRunningTransition() {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+		final boolean[] animating = new boolean[1];
+		testViewDirect.addActiveViewChangedListener(listener);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handle[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+				animating[0] = !handle[0].isFinished();
+
+				testViewDirect.bindState(MIDDLE_SUBVIEW_KEY,
+						Collections.singleton(BACK_SUBVIEW_KEY));
+			}
+		});
+
+		assumeTrue(animating[0]);
+
+		assertThat(handle[0].getOutcome(), is(SUPERSEDED));
+		assertThat(testViewDirect.getSnapshot().getActiveKey(), is(MIDDLE_SUBVIEW_KEY));
+
+		backSubviewEspresso.check(hasState(INACTIVE, "back subview"));
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+		frontSubviewEspresso.check(hasState(INACTIVE, "front subview"));
+
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		middleSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+
+		verify(listener, never()).onActiveViewChanged(eq(testViewDirect), any(VertigoView.class));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#bindState(String, Set)} method raises
+	 * the active view for touch events as well as for drawing. The test will only pass if a touch
+	 * in the centre of the coordinator is delivered to the active view, even though other up views
+	 * are in front of it in the child order.
+	 */
+	@Test
+	public void testBindState_activeViewReceivesTouches() {
+		final View[] touchedView = new View[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.bindState(BACK_SUBVIEW_KEY, new HashSet<>(Arrays.asList(
+						MIDDLE_SUBVIEW_KEY, FRONT_SUBVIEW_KEY)));
+				touchedView[0] = dispatchTouchToCentre();
+			}
+		});
+
+		assertThat(touchedView[0] == backSubviewDirect, is(true));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#makeViewActive(String, boolean)}
+	 * method raises a view which moves up by changing only the drawing order. The test will only
+	 * pass if the raised view is drawn in front of the other views, and from Lollipop the child
+	 * order is unchanged and no layout is requested.
+	 */
+	@Test
+	public void testMakeViewActive_raisesViewWithoutReorderingChildren() {
+		final int[] centrePixel = new int[1];
+		final int[] backSubviewIndex = new int[1];
+		final boolean[] layoutRequested = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				backSubviewDirect.setBackgroundColor(Color.RED);
+				frontSubviewDirect.setBackgroundColor(Color.BLUE);
+
+				testViewDirect.bindState(FRONT_SUBVIEW_KEY, Collections.singleton(
+						FRONT_SUBVIEW_KEY));
+				runLayoutPass();
+
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+
+				centrePixel[0] = drawCentrePixel();
+				backSubviewIndex[0] = testViewDirect.indexOfChild(backSubviewDirect);
+				layoutRequested[0] = testViewDirect.isLayoutRequested();
+			}
+		});
+
+		assertThat(centrePixel[0], is(Color.RED));
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			assertThat(backSubviewIndex[0], is(0));
+			assertThat(layoutRequested[0], is(false));
+		}
+	}
+
+	/**
+	 * Test to ensure that the views raised by the coordinator keep their drawing and touch order
+	 * when the front most raised view is removed. The test will only pass if each newly raised
+	 * view is drawn in front of the others and receives touches, and the previously raised view is
+	 * restored to the front once the last raised view is removed.
+	 */
+	@Test
+	public void testRemoveView_restoresPreviouslyRaisedView() {
+		final Set<String> allKeys = new HashSet<>(Arrays.asList(BACK_SUBVIEW_KEY,
+				MIDDLE_SUBVIEW_KEY, FRONT_SUBVIEW_KEY));
+
+		final int[] centrePixels = new int[3];
+		final View[] touchedViews = new View[3];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				backSubviewDirect.setBackgroundColor(Color.RED);
+				middleSubviewDirect.setBackgroundColor(Color.GREEN);
+				frontSubviewDirect.setBackgroundColor(Color.BLUE);
+
+				testViewDirect.bindState(BACK_SUBVIEW_KEY, allKeys);
+				runLayoutPass();
+				centrePixels[0] = drawCentrePixel();
+				touchedViews[0] = dispatchTouchToCentre();
+
+				testViewDirect.bindState(MIDDLE_SUBVIEW_KEY, allKeys);
+				runLayoutPass();
+				centrePixels[1] = drawCentrePixel();
+				touchedViews[1] = dispatchTouchToCentre();
+
+				testViewDirect.removeView(middleSubviewDirect);
+				runLayoutPass();
+				centrePixels[2] = drawCentrePixel();
+				touchedViews[2] = dispatchTouchToCentre();
+			}
+		});
+
+		assertThat(centrePixels[0], is(Color.RED));
+		assertThat(touchedViews[0] == backSubviewDirect, is(true));
+
+		assertThat(centrePixels[1], is(Color.GREEN));
+		assertThat(touchedViews[1] == middleSubviewDirect, is(true));
+
+		assertThat(centrePixels[2], is(Color.RED));
+		assertThat(touchedViews[2] == backSubviewDirect, is(true));
+	}
+
+	/**
+	 * Test to ensure that a view behind a sliding view is clipped to the band which the sliding
+	 * view has exposed. The test will only pass if the stationary view is clipped at the top of
+	 * the sliding view while the transition runs. The test is skipped if the device has
+	 * animations disabled, since no transition is ever running in that case.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to progress
+	 */
+	@Test
+	public void testMakeViewActive_viewBehindSlidingViewClippedToExposedBand() throws Exception {
+		final int[] clipBottom = new int[1];
+		final VertigoFrameLayout recordingSubview = addClipRecordingSubview(clipBottom);
+
+		final float[] slidingViewY = new float[1];
+		final boolean[] running = new boolean[1];
+
+		startSlideBehindMiddleSubview();
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				clipBottom[0] = -1;
+				drawCentrePixel();
+
+				slidingViewY[0] = middleSubviewDirect.getY();
+				running[0] = testViewDirect.getSnapshot().isTransitionInProgress();
+			}
+		});
+
+		assumeTrue(running[0]);
+
+		assertThat(recordingSubview.getY(), is(0f));
+		assertThat(slidingViewY[0] > 0, is(true));
+		assertThat(clipBottom[0], is((int) Math.ceil(slidingViewY[0])));
+	}
+
+	/**
+	 * Test to ensure that views are not clipped while any child is elevated, since from Lollipop
+	 * elevated children change the order the children are drawn in. The test will only pass if the
+	 * view behind the sliding view is drawn without clipping. The test is skipped prior to
+	 * Lollipop, and if the device has animations disabled.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to progress
+	 */
+	@Test
+	public void testMakeViewActive_elevatedChildDisablesClipping() throws Exception {
+		assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP);
+
+		final int[] clipBottom = new int[1];
+		final VertigoFrameLayout recordingSubview = addClipRecordingSubview(clipBottom);
+
+		final boolean[] running = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				recordingSubview.setTranslationZ(1);
+			}
+		});
+
+		startSlideBehindMiddleSubview();
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				clipBottom[0] = -1;
+				drawCentrePixel();
+
+				running[0] = testViewDirect.getSnapshot().isTransitionInProgress();
+			}
+		});
+
+		assumeTrue(running[0]);
+
+		assertThat(clipBottom[0], is(testViewDirect.getHeight()));
+	}
+
+	/**
+	 * Test to ensure that a view which changes size while it is parked in the down position is
+	 * measured and laid out again before it moves up. The test will only pass if the view has the
+	 * size of its new content once it is active.
+	 */
+	@Test
+	public void testMakeViewActive_viewResizedInDownPosition() {
+		final View content = new View(testHarnessRule.getActivity());
+		content.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT, 50));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				frontSubviewDirect.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT,
+						WRAP_CONTENT));
+				frontSubviewDirect.addView(content);
+				runLayoutPass();
+			}
+		});
+
+		// Park the front subview in the down position
+		testViewEspresso.perform(makeViewActive(BACK_SUBVIEW_KEY, false, listener));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				content.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT, 120));
+				runLayoutPass();
+			}
+		});
+
+		testViewEspresso.perform(makeViewActive(FRONT_SUBVIEW_KEY, false, listener));
+
+		assertThat(frontSubviewDirect.getHeight(), is(120));
+		frontSubviewEspresso.check(hasState(ACTIVE, "front subview"));
+		frontSubviewEspresso.check(isInUpPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#bindState(String, Set)} method
+	 * measures and lays out views which leave the down position. The test will only pass if a view
+	 * which changed size while it was parked has the size of its new content once it is bound in
+	 * the up position.
+	 */
+	@Test
+	public void testBindState_viewResizedInDownPosition() {
+		final View content = new View(testHarnessRule.getActivity());
+		content.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT, 50));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				frontSubviewDirect.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT,
+						WRAP_CONTENT));
+				frontSubviewDirect.addView(content);
+				runLayoutPass();
+			}
+		});
+
+		// Park the front subview in the down position
+		testViewEspresso.perform(makeViewActive(BACK_SUBVIEW_KEY, false, listener));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				content.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT, 120));
+				runLayoutPass();
+				testViewDirect.bindState(FRONT_SUBVIEW_KEY, Collections.<String>emptySet());
+			}
+		});
+
+		assertThat(frontSubviewDirect.getHeight(), is(120));
+		frontSubviewEspresso.check(hasState(ACTIVE, "front subview"));
+		frontSubviewEspresso.check(isInUpPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that views parked in the down position are measured and laid out again when
+	 * the coordinator grows. The test will only pass if the parked view takes the new height of
+	 * the coordinator and sits directly below its lower bound, rather than inside it.
+	 */
+	@Test
+	public void testOnLayout_coordinatorGrowsWhileViewParked() {
+		final int[] heights = new int[2];
+		final float[] translation = new float[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				final int fullHeight = testViewDirect.getHeight();
+
+				// Park the front subview while the coordinator is half of its full height
+				runLayoutPass(fullHeight / 2);
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+				runLayoutPass(fullHeight);
+
+				heights[0] = testViewDirect.getHeight();
+				heights[1] = frontSubviewDirect.getHeight();
+				translation[0] = frontSubviewDirect.getTranslationY();
+			}
+		});
+
+		assertThat(heights[1], is(heights[0]));
+		assertThat(translation[0], is((float) heights[0]));
+	}
+
+	/**
+	 * Test to ensure that the positions of moving views are reapplied using their new size when
+	 * the coordinator is resized during a transition. The test will only pass if the moving view
+	 * keeps the same fraction of its height across the resize, and finishes directly below the
+	 * lower bound of the resized coordinator.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testOnLayout_coordinatorResizedDuringTransition() throws Exception {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+		final float[] fractions = new float[2];
+		final int[] heights = new int[2];
+		final float[] translation = new float[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setAnimationDurationMs(1000);
+				handle[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+			}
+		});
+
+		// Allow the transition to make some progress before resizing
+		Thread.sleep(200);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				fractions[0] = frontSubviewDirect.getTranslationY() / frontSubviewDirect
+						.getHeight();
+				runLayoutPass(testViewDirect.getHeight() / 2);
+				fractions[1] = frontSubviewDirect.getTranslationY() / frontSubviewDirect
+						.getHeight();
+
+				heights[0] = testViewDirect.getHeight();
+				heights[1] = frontSubviewDirect.getHeight();
+			}
+		});
+
+		assertThat(fractions[0] > 0 && fractions[0] < 1, is(true));
+		assertThat(Math.abs(fractions[1] - fractions[0]) < 0.01f, is(true));
+		assertThat(heights[1], is(heights[0]));
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				heights[0] = testViewDirect.getHeight();
+				heights[1] = frontSubviewDirect.getHeight();
+				translation[0] = frontSubviewDirect.getTranslationY();
+			}
+		});
+
+		assertThat(heights[1], is(heights[0]));
+		assertThat(translation[0], is((float) heights[0]));
+	}
+
+	/**
+	 * Test to ensure that a view which was parked before the coordinator was resized moves up
+	 * using its new size. The test will only pass if the view finishes in the up position with
+	 * the new height of the coordinator, and the view which stays parked sits directly below the
+	 * lower bound of the resized coordinator.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testMakeViewActive_coordinatorResizedWhileViewParked() throws Exception {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				final int fullHeight = testViewDirect.getHeight();
+
+				runLayoutPass(fullHeight / 2);
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+				runLayoutPass(fullHeight);
+
+				handle[0] = testViewDirect.makeViewActive(FRONT_SUBVIEW_KEY, true);
+			}
+		});
+
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+
+		final int[] heights = new int[3];
+		final float[] translation = new float[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				heights[0] = testViewDirect.getHeight();
+				heights[1] = frontSubviewDirect.getHeight();
+				heights[2] = middleSubviewDirect.getHeight();
+				translation[0] = middleSubviewDirect.getTranslationY();
+			}
+		});
+
+		frontSubviewEspresso.check(isInUpPosition(testViewDirect));
+		assertThat(heights[1], is(heights[0]));
+		assertThat(heights[2], is(heights[0]));
+		assertThat(translation[0], is((float) heights[0]));
+	}
+
+	/**
+	 * Test to ensure that inactive views are hidden from accessibility services. The test will
+	 * only pass if the active view keeps its default importance and the descendants of every other
+	 * view are hidden.
+	 */
+	@Test
+	public void testMakeViewActive_hidesInactiveViewsFromAccessibility() {
+		assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT);
+
+		testViewEspresso.perform(makeViewActive(MIDDLE_SUBVIEW_KEY, false, listener));
+
+		assertThat(backSubviewDirect.getImportantForAccessibility(),
+				is(IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS));
+		assertThat(middleSubviewDirect.getImportantForAccessibility(),
+				is(IMPORTANT_FOR_ACCESSIBILITY_AUTO));
+		assertThat(frontSubviewDirect.getImportantForAccessibility(),
+				is(IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#setMaxTransitionFrameRate(int)}
+	 * method limits the number of times views are updated during a transition. The test will only
+	 * pass if the moving view is updated no more than ten times per second of the transition,
+	 * allowing for the updates at the start and end of the transition. The test is skipped if the
+	 * device has animations disabled, since no transition is ever running in that case.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testSetMaxTransitionFrameRate_limitsViewUpdates() throws Exception {
+		final int[] updateCount = new int[1];
+
+		final VertigoFrameLayout countingSubview = new VertigoFrameLayout(testHarnessRule
+				.getActivity()) {
+			@Override
+			public void setTranslationY(final float translationY) {
+				super.setTranslationY(translationY);
+				updateCount[0]++;
+			}
+		};
+
+		countingSubview.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT, MATCH_PARENT));
+		countingSubview.onStateChanged(INACTIVE);
+
+		final TransitionHandle[] handle = new TransitionHandle[1];
+		final long[] timesMs = new long[2];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.addView(countingSubview);
+				testViewDirect.registerViewForCoordination(countingSubview, COUNTING_SUBVIEW_KEY);
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+				runLayoutPass();
+
+				testViewDirect.setAnimationDurationMs(500);
+				testViewDirect.setMaxTransitionFrameRate(10);
+
+				updateCount[0] = 0;
+				timesMs[0] = SystemClock.uptimeMillis();
+
+				handle[0] = testViewDirect.makeViewActive(COUNTING_SUBVIEW_KEY, true);
+				handle[0].then(new TransitionHandle.CompletionListener() {
+					@Override
+					public void onTransitionFinished(final TransitionHandle finishedHandle,
+							final TransitionHandle.Outcome outcome) {
+						timesMs[1] = SystemClock.uptimeMillis();
+					}
+				});
+			}
+		});
+
+		assumeTrue(timesMs[1] == 0);
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		final long elapsedMs = timesMs[1] - timesMs[0];
+		assertThat(updateCount[0] <= elapsedMs * 10 / 1000 + 4, is(true));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#dumpEvents(String, PrintWriter)}
+	 * method reports recent operations. The test will only pass if a request for the active view
+	 * is recorded with the key it was made with and a completed outcome.
+	 */
+	@Test
+	public void testDumpEvents() {
+		testViewEspresso.perform(makeViewActive(FRONT_SUBVIEW_KEY, false, listener));
+
+		final StringWriter events = new StringWriter();
+		testViewDirect.dumpEvents("", new PrintWriter(events));
+
+		assertThat(events.toString().contains("MAKE_VIEW_ACTIVE key=" + FRONT_SUBVIEW_KEY +
+				" outcome=COMPLETED"), is(true));
+	}
+
+	/**
+	 * Test to ensure that registered views are unregistered when they are removed from the
+	 * coordinator, and that weak registration restores them when they are added back. The test
+	 * will only pass if the removed view can no longer be found by its key, and the re-added view
+	 * is registered with the same key at the index it was added at, without changing its state or
+	 * the state of the active view.
+	 */
+	@Test
+	public void testRemoveView_unregistersView() {
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.removeView(backSubviewDirect);
+				testViewDirect.setWeakRegistrationEnabled(true);
+				testViewDirect.removeView(middleSubviewDirect);
+			}
+		});
+
+		assertThat(testViewDirect.getView(BACK_SUBVIEW_KEY) == null, is(true));
+		assertThat(testViewDirect.getView(MIDDLE_SUBVIEW_KEY) == null, is(true));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.addView(middleSubviewDirect, 0);
+			}
+		});
+
+		assertThat(testViewDirect.getView(MIDDLE_SUBVIEW_KEY) == middleSubviewDirect, is(true));
+		assertThat(testViewDirect.getChildAt(0) == middleSubviewDirect, is(true));
+		middleSubviewEspresso.check(hasState(INACTIVE, "middle subview"));
+		middleSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(hasState(ACTIVE, "front subview"));
+	}
+
+	/**
+	 * Test to ensure that weak registration restores views to the position and state they had
+	 * when they were removed. The test will only pass if a view removed in the down position is
+	 * restored in the down position, and a removed active view is restored as the active view
+	 * without notifying the listeners.
+	 */
+	@Test
+	public void testRemoveView_restoresPositionAndState() {
+		testViewEspresso.perform(makeViewActive(BACK_SUBVIEW_KEY, false, listener));
+
+		final ActiveViewChangedListener restoreListener = mock(ActiveViewChangedListener.class);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setWeakRegistrationEnabled(true);
+				testViewDirect.addActiveViewChangedListener(restoreListener);
+				testViewDirect.removeView(frontSubviewDirect);
+				testViewDirect.removeView(backSubviewDirect);
+				testViewDirect.addView(frontSubviewDirect);
+				testViewDirect.addView(backSubviewDirect, 0);
+			}
+		});
+
+		frontSubviewEspresso.check(hasState(INACTIVE, "front subview"));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+		backSubviewEspresso.check(hasState(ACTIVE, "back subview"));
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+
+		verify(restoreListener, never()).onActiveViewChanged(eq(testViewDirect),
+				any(VertigoView.class));
+	}
+
+	/**
+	 * Test to ensure that views which do not implement VertigoView can be registered and made
+	 * active. The test will only pass if the coordinator reports the state changes of the plain
+	 * view to the supplied listener and moves the other views correctly.
+	 */
+	@Test
+	public void testMakeViewActive_plainView() {
+		final FrameLayout plainView = new FrameLayout(testHarnessRule.getActivity());
+		plainView.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT, MATCH_PARENT));
+
+		final PlainVertigoView.StateListener stateListener = mock(PlainVertigoView.StateListener
+				.class);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.addView(plainView, 0);
+				testViewDirect.registerViewForCoordination(plainView, "plain view",
+						stateListener);
+				testViewDirect.makeViewActive("plain view", false, null);
+			}
+		});
+
+		verify(stateListener, times(1)).onStateChanged(plainView, ACTIVE);
+		assertThat(testViewDirect.getSnapshot().getActiveKey(), is("plain view"));
+
+		backSubviewEspresso.check(isInDownPosition(testViewDirect));
+		middleSubviewEspresso.check(isInDownPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+	}
+
+	/**
+	 * Test to ensure that a snapshot of a view which has moved down is drawn in place of a
+	 * replacement view which is not ready to be drawn. The test will only pass if the snapshot is
+	 * drawn while the replacement has not been laid out, is still drawn on top of the replacement
+	 * during its first draw, and is removed on the following frame.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the placeholder to be removed
+	 */
+	@Test
+	public void testSetSnapshotCacheSize_placeholderDrawnUntilReplacementDrawn() throws Exception {
+		final VertigoFrameLayout replacement = createSubview(INACTIVE);
+		replacement.setBackgroundColor(Color.BLUE);
+
+		final int[] centrePixels = new int[3];
+		final boolean[] replacementReady = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setSnapshotCacheSize(SNAPSHOT_CACHE_SIZE_BYTES);
+				backSubviewDirect.setBackgroundColor(Color.RED);
+
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+				testViewDirect.makeViewActive(FRONT_SUBVIEW_KEY, false);
+			}
+		});
+
+		// Allow the snapshot of the back subview to be captured
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.removeView(backSubviewDirect);
+				testViewDirect.addView(replacement);
+				testViewDirect.registerViewForCoordination(replacement, BACK_SUBVIEW_KEY);
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+
+				replacementReady[0] = !replacement.isLayoutRequested();
+				centrePixels[0] = drawCentrePixel();
+
+				runLayoutPass();
+				centrePixels[1] = drawCentrePixel();
+			}
+		});
+
+		// Allow the placeholder to be released on the next frame
+		Thread.sleep(100);
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				centrePixels[2] = drawCentrePixel();
+			}
+		});
+
+		assertThat(replacementReady[0], is(false));
+		assertThat(centrePixels[0], is(Color.RED));
+		assertThat(centrePixels[1], is(Color.RED));
+		assertThat(centrePixels[2], is(Color.BLUE));
+	}
+
+	/**
+	 * Test to ensure that no snapshot is captured if it would not fit in the snapshot cache. The
+	 * test will only pass if nothing is drawn in place of a replacement view which is not ready to
+	 * be drawn.
+	 */
+	@Test
+	public void testSetSnapshotCacheSize_snapshotTooLargeForCache() {
+		final VertigoFrameLayout replacement = createSubview(INACTIVE);
+		replacement.setBackgroundColor(Color.BLUE);
+
+		final int[] centrePixel = new int[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setSnapshotCacheSize(1);
+				backSubviewDirect.setBackgroundColor(Color.RED);
+
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+				testViewDirect.makeViewActive(FRONT_SUBVIEW_KEY, false);
+			}
+		});
+
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.removeView(backSubviewDirect);
+				testViewDirect.addView(replacement);
+				testViewDirect.registerViewForCoordination(replacement, BACK_SUBVIEW_KEY);
+				testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, false);
+
+				centrePixel[0] = drawCentrePixel();
+			}
+		});
+
+		assertThat(centrePixel[0], is(not(Color.RED)));
+	}
+
+	/**
+	 * Test to ensure that views can be registered and made active by consecutive submissions from
+	 * a background thread. The test will only pass if the view is registered and the activation
+	 * completes once the main thread has drained the commands.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testSubmitRegisterViewForCoordination() throws Exception {
+		final VertigoFrameLayout subview = createSubview(INACTIVE);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.addView(subview, 0);
+			}
+		});
+
+		testViewDirect.submitRegisterViewForCoordination(subview, "submitted view");
+		final TransitionHandle handle = testViewDirect.submitMakeViewActive("submitted view",
+				false, null);
+
+		assertThat(handle.await(2, SECONDS), is(COMPLETED));
+		assertThat(testViewDirect.getView("submitted view") == subview, is(true));
+		assertThat(subview.getCurrentState(), is(ACTIVE));
+	}
+
+	/**
+	 * Test to ensure that a submitted registration of a view which is already registered is
+	 * dropped without affecting later commands. The test will only pass if the view keeps its
+	 * original key and a command submitted after the registration still executes.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testSubmitRegisterViewForCoordination_viewAlreadyRegistered() throws Exception {
+		testViewDirect.submitRegisterViewForCoordination(frontSubviewDirect, "other key");
+		final TransitionHandle handle = testViewDirect.submitMakeViewActive(MIDDLE_SUBVIEW_KEY,
+				false, null);
+
+		assertThat(handle.await(2, SECONDS), is(COMPLETED));
+		assertThat(testViewDirect.getView("other key") == null, is(true));
+		assertThat(testViewDirect.getView(FRONT_SUBVIEW_KEY) == frontSubviewDirect, is(true));
+		middleSubviewEspresso.check(hasState(ACTIVE, "middle subview"));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#submitRegisterViewForCoordination(
+	 * VertigoView, String)} method validates the view on the submitting thread. The test will only
+	 * pass if an exception is thrown for a view which is not a subclass of View.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSubmitRegisterViewForCoordination_invalidView() {
+		testViewDirect.submitRegisterViewForCoordination(mock(VertigoView.class), "invalid view");
+	}
+
+	/**
+	 * Test to ensure that active view listeners are notified after the snapshot is published. The
+	 * test will only pass if a listener which reads the snapshot during its callback sees the new
+	 * active view, for both animated and instant transitions.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testGetSnapshot_publishedBeforeListenersNotified() throws Exception {
+		final List<String> activeKeys = new ArrayList<>();
+		final TransitionHandle[] handle = new TransitionHandle[1];
+
+		testViewDirect.addActiveViewChangedListener(new ActiveViewChangedListener() {
+			@Override
+			public void onActiveViewChanged(final VertigoCoordinator coordinator,
+					final VertigoView activeView) {
+				activeKeys.add(testViewDirect.getSnapshot().getActiveKey());
+			}
+		});
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.makeViewActive(MIDDLE_SUBVIEW_KEY, false);
+				handle[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+			}
+		});
+
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		assertThat(activeKeys, is(Arrays.asList(MIDDLE_SUBVIEW_KEY, BACK_SUBVIEW_KEY)));
+	}
+
+	/**
+	 * Test to ensure that the snapshot reports whether or not a transition is in progress. The
+	 * test will only pass if the snapshot reports a transition while one is animating, and reports
+	 * none after both an animated and an instant transition have finished.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testGetSnapshot_reportsTransitionInProgress() throws Exception {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+		final boolean[] inProgressWhileAnimating = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handle[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+				inProgressWhileAnimating[0] = handle[0].isFinished() ||
+						testViewDirect.getSnapshot().isTransitionInProgress();
+			}
+		});
+
+		assertThat(inProgressWhileAnimating[0], is(true));
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+		assertThat(testViewDirect.getSnapshot().isTransitionInProgress(), is(false));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.makeViewActive(FRONT_SUBVIEW_KEY, false);
+			}
+		});
+
+		assertThat(testViewDirect.getSnapshot().isTransitionInProgress(), is(false));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#makeViewActive(String, boolean)}
+	 * method resolves hierarchical keys. The test will only pass if the views of both the outer
+	 * and the nested coordinator finish in the correct states and positions, and the listener of
+	 * the outer coordinator is notified once.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testMakeViewActive_hierarchicalKey() throws Exception {
+		final SimpleVertigoCoordinator nestedCoordinator = addNestedCoordinator();
+		final TransitionHandle[] handle = new TransitionHandle[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.addActiveViewChangedListener(listener);
+				handle[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY +
+						SimpleVertigoCoordinator.KEY_SEPARATOR + INNER_BACK_SUBVIEW_KEY, true);
+			}
+		});
+
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+
+		final ViewInteraction innerBackSubviewEspresso = viewToViewInteraction(
+				(View) nestedCoordinator.getView(INNER_BACK_SUBVIEW_KEY), "5");
+		final ViewInteraction innerFrontSubviewEspresso = viewToViewInteraction(
+				(View) nestedCoordinator.getView(INNER_FRONT_SUBVIEW_KEY), "6");
+
+		backSubviewEspresso.check(hasState(ACTIVE, "back subview"));
+		frontSubviewEspresso.check(hasState(INACTIVE, "front subview"));
+		innerBackSubviewEspresso.check(hasState(ACTIVE, "inner back subview"));
+		innerFrontSubviewEspresso.check(hasState(INACTIVE, "inner front subview"));
+
+		backSubviewEspresso.check(isInUpPosition(testViewDirect));
+		frontSubviewEspresso.check(isInDownPosition(testViewDirect));
+		innerBackSubviewEspresso.check(isInUpPosition(nestedCoordinator));
+		innerFrontSubviewEspresso.check(isInDownPosition(nestedCoordinator));
+
+		assertThat(nestedCoordinator.getSnapshot().isTransitionInProgress(), is(false));
+		verify(listener, times(1)).onActiveViewChanged(testViewDirect, backSubviewDirect);
+	}
+
+	/**
+	 * Test to ensure that unregistering a view from a nested coordinator ends the combined
+	 * transition which is moving it. The test will only pass if the transition is superseded, the
+	 * unregistered view is not reported as up, and the outer coordinator accepts a new transition
+	 * straight afterwards.
+	 */
+	@Test
+	public void testUnregisterViewForCoordination_duringNestedTransition() {
+		final SimpleVertigoCoordinator nestedCoordinator = addNestedCoordinator();
+		final TransitionHandle[] handles = new TransitionHandle[2];
+		final boolean[] animating = new boolean[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				handles[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY +
+						SimpleVertigoCoordinator.KEY_SEPARATOR + INNER_BACK_SUBVIEW_KEY, true);
+				animating[0] = !handles[0].isFinished();
+
+				nestedCoordinator.unregisterViewForCoordination(INNER_FRONT_SUBVIEW_KEY);
+
+				handles[1] = testViewDirect.makeViewActive(FRONT_SUBVIEW_KEY, false);
+			}
+		});
+
+		assumeTrue(animating[0]);
+
+		assertThat(handles[0].getOutcome(), is(SUPERSEDED));
+		assertThat(handles[1].getOutcome(), is(COMPLETED));
+		assertThat(nestedCoordinator.getSnapshot().getUpKeys().contains(INNER_FRONT_SUBVIEW_KEY),
+				is(false));
+		assertThat(nestedCoordinator.getSnapshot().isTransitionInProgress(), is(false));
+		frontSubviewEspresso.check(hasState(ACTIVE, "front subview"));
+	}
+
+	/**
+	 * Test to ensure that the {@link SimpleVertigoCoordinator#makeViewActive(String, boolean)}
+	 * method waits for layouts which are being inflated in the background. The test will only
+	 * pass if the request completes once the layout has been inflated, and the inflated view is
+	 * registered and active.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testInflateViewAsync_makeViewActiveWaitsForInflation() throws Exception {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.inflateViewAsync(R.layout.async_panel, ASYNC_VIEW_KEY, 0);
+				handle[0] = testViewDirect.makeViewActive(ASYNC_VIEW_KEY, false);
+			}
+		});
+
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+		assertThat(testViewDirect.isInflating(ASYNC_VIEW_KEY), is(false));
+		assertThat(testViewDirect.getView(ASYNC_VIEW_KEY).getCurrentState(), is(ACTIVE));
+		frontSubviewEspresso.check(hasState(INACTIVE, "front subview"));
+	}
+
+	/**
+	 * Test to ensure that unregistering a key which is being inflated cancels the inflation. The
+	 * test will only pass if the waiting request is dropped and the inflated view is never added
+	 * to the coordinator.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the inflation
+	 */
+	@Test
+	public void testUnregisterViewForCoordination_cancelsInflation() throws Exception {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+		final int[] childCount = new int[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				childCount[0] = testViewDirect.getChildCount();
+				testViewDirect.inflateViewAsync(R.layout.async_panel, ASYNC_VIEW_KEY, 0);
+				handle[0] = testViewDirect.makeViewActive(ASYNC_VIEW_KEY, false);
+				testViewDirect.unregisterViewForCoordination(ASYNC_VIEW_KEY);
+			}
+		});
+
+		assertThat(handle[0].getOutcome(), is(DROPPED));
+
+		// Give a request which was not cancelled time to finish
+		Thread.sleep(500);
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		assertThat(testViewDirect.isInflating(ASYNC_VIEW_KEY), is(false));
+		assertThat(testViewDirect.getView(ASYNC_VIEW_KEY) == null, is(true));
+		assertThat(testViewDirect.getChildCount(), is(childCount[0]));
+	}
+
+	/**
+	 * Test to ensure that cancelling a request which is waiting for a layout withdraws the
+	 * request. The test will only pass if the handle reports a cancelled outcome straight away,
+	 * and the inflated view is registered without becoming active.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the inflation
+	 */
+	@Test
+	public void testInflateViewAsync_cancelWaitingRequest() throws Exception {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.inflateViewAsync(R.layout.async_panel, ASYNC_VIEW_KEY, 0);
+				handle[0] = testViewDirect.makeViewActive(ASYNC_VIEW_KEY, false);
+				handle[0].cancel();
+			}
+		});
+
+		assertThat(handle[0].getOutcome(), is(CANCELLED));
+
+		waitForInflation(ASYNC_VIEW_KEY);
+
+		assertThat(testViewDirect.getView(ASYNC_VIEW_KEY).getCurrentState(), is(INACTIVE));
+		frontSubviewEspresso.check(hasState(ACTIVE, "front subview"));
+	}
+
+	/**
+	 * Test to ensure that transitions started in a group of the {@link TransitionScheduler} start
+	 * on the same frame. The first transition joins the group several frames before the second.
+	 * The test will only pass if the first transition does not progress until the group ends,
+	 * and both transitions report the same progress on every frame until they complete.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transitions to finish
+	 */
+	@Test
+	public void testTransitionScheduler_groupedTransitionsStartOnSameFrame() throws Exception {
+		final SimpleVertigoCoordinator nestedCoordinator = addNestedCoordinator();
+		final TransitionScheduler scheduler = TransitionScheduler.getInstance();
+		final TransitionHandle[] handles = new TransitionHandle[2];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setSharedSchedulerEnabled(true);
+				nestedCoordinator.setSharedSchedulerEnabled(true);
+
+				scheduler.beginGroup();
+				handles[0] = testViewDirect.makeViewActive(MIDDLE_SUBVIEW_KEY, true);
+			}
+		});
+
+		// Allow several frames to pass before the second transition joins the group
+		Thread.sleep(100);
+
+		final float[] progress = new float[2];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				progress[0] = handles[0].getProgress();
+				handles[1] = nestedCoordinator.makeViewActive(INNER_BACK_SUBVIEW_KEY, true);
+				scheduler.endGroup();
+			}
+		});
+
+		assertThat(progress[0], is(0f));
+
+		for (int i = 0; i < 50 && !handles[0].isFinished(); i++) {
+			InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+				@Override
+				public void run() {
+					progress[0] = handles[0].getProgress();
+					progress[1] = handles[1].getProgress();
+				}
+			});
+
+			assertThat(progress[0], is(progress[1]));
+
+			Thread.sleep(20);
+		}
+
+		assertThat(handles[0].await(2, SECONDS), is(COMPLETED));
+		assertThat(handles[1].await(2, SECONDS), is(COMPLETED));
+	}
+
+	/**
+	 * Test to ensure that the {@link TransitionScheduler} only receives frames while transitions
+	 * are registered with it. The test will only pass if the scheduler is running while a
+	 * transition is in progress, and stops once the transition has completed.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the transition to finish
+	 */
+	@Test
+	public void testTransitionScheduler_stopsWhenIdle() throws Exception {
+		final TransitionHandle[] handle = new TransitionHandle[1];
+		final boolean[] running = new boolean[2];
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.setSharedSchedulerEnabled(true);
+				handle[0] = testViewDirect.makeViewActive(BACK_SUBVIEW_KEY, true);
+				running[0] = TransitionScheduler.getInstance().isRunning();
+			}
+		});
+
+		assertThat(handle[0].await(2, SECONDS), is(COMPLETED));
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				running[1] = TransitionScheduler.getInstance().isRunning();
+			}
+		});
+
+		assertThat(running[0], is(true));
+		assertThat(running[1], is(false));
+	}
+
+	/**
+	 * Blocks the calling thread until the test view has finished inflating a layout, or two
+	 * seconds have passed. Must not be called on the main thread.
+	 *
+	 * @param key
+	 * 		the key of the layout, not null
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting
+	 */
+	private void waitForInflation(final String key) throws InterruptedException {
+		final boolean[] inflating = {true};
+
+		for (int i = 0; i < 40 && inflating[0]; i++) {
+			Thread.sleep(50);
+
+			InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+				@Override
+				public void run() {
+					inflating[0] = testViewDirect.isInflating(key);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Adds a SimpleVertigoCoordinator to the back subview, and adds an inactive and an active
+	 * subview to it. The subviews are registered using {@link #INNER_BACK_SUBVIEW_KEY} and {@link
+	 * #INNER_FRONT_SUBVIEW_KEY} respectively.
+	 *
+	 * @return the nested coordinator, not null
+	 */
+	private SimpleVertigoCoordinator addNestedCoordinator() {
+		final SimpleVertigoCoordinator nestedCoordinator = new SimpleVertigoCoordinator(
+				testHarnessRule.getActivity());
+		nestedCoordinator.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT,
+				MATCH_PARENT));
+
+		final VertigoFrameLayout innerBackSubview = createSubview(INACTIVE);
+		final VertigoFrameLayout innerFrontSubview = createSubview(ACTIVE);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				backSubviewDirect.addView(nestedCoordinator);
+				nestedCoordinator.addView(innerBackSubview);
+				nestedCoordinator.addView(innerFrontSubview);
+				nestedCoordinator.registerViewForCoordination(innerBackSubview,
+						INNER_BACK_SUBVIEW_KEY);
+				nestedCoordinator.registerViewForCoordination(innerFrontSubview,
+						INNER_FRONT_SUBVIEW_KEY);
+				runLayoutPass();
+			}
+		});
+
+		return nestedCoordinator;
+	}
+
+	/**
+	 * Dispatches a touch down event to the centre of the test view, followed by a cancel event.
+	 * Must be called on the main thread.
+	 *
+	 * @return the subview which handled the touch, null if no subview handled it
+	 */
+	private View dispatchTouchToCentre() {
+		final View[] touchedView = new View[1];
+
+		final View.OnTouchListener touchListener = new View.OnTouchListener() {
+			@Override
+			public boolean onTouch(final View view, final MotionEvent event) {
+				touchedView[0] = view;
+				return true;
+			}
+		};
+
+		backSubviewDirect.setOnTouchListener(touchListener);
+		middleSubviewDirect.setOnTouchListener(touchListener);
+		frontSubviewDirect.setOnTouchListener(touchListener);
+
+		final long timeMs = SystemClock.uptimeMillis();
+		final MotionEvent down = MotionEvent.obtain(timeMs, timeMs, MotionEvent.ACTION_DOWN,
+				testViewDirect.getWidth() / 2f, testViewDirect.getHeight() / 2f, 0);
+		final MotionEvent cancel = MotionEvent.obtain(timeMs, timeMs, MotionEvent.ACTION_CANCEL,
+				testViewDirect.getWidth() / 2f, testViewDirect.getHeight() / 2f, 0);
+
+		testViewDirect.dispatchTouchEvent(down);
+		final View downTarget = touchedView[0];
+		testViewDirect.dispatchTouchEvent(cancel);
+
+		down.recycle();
+		cancel.recycle();
+
+		return downTarget;
+	}
+
+	/**
+	 * Adds an opaque subview to the test view which records the bottom of its clip bounds each
+	 * time it is drawn. The subview is registered and made active, so that all other subviews are
+	 * parked in the down position.
+	 *
+	 * @param clipBottom
+	 * 		the array to record the bottom of the clip bounds in, as the first element, not null
+	 * @return the subview, not null
+	 */
+	private VertigoFrameLayout addClipRecordingSubview(final int[] clipBottom) {
+		final VertigoFrameLayout recordingSubview = new VertigoFrameLayout(testHarnessRule
+				.getActivity()) {
+			@Override
+			public void draw(final Canvas canvas) {
+				clipBottom[0] = canvas.getClipBounds().bottom;
+				super.draw(canvas);
+			}
+		};
+
+		recordingSubview.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT,
+				MATCH_PARENT));
+		recordingSubview.setBackgroundColor(Color.BLUE);
+		recordingSubview.onStateChanged(INACTIVE);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				testViewDirect.addView(recordingSubview);
+				testViewDirect.registerViewForCoordination(recordingSubview,
+						RECORDING_SUBVIEW_KEY);
+				testViewDirect.makeViewActive(RECORDING_SUBVIEW_KEY, false);
+				runLayoutPass();
+			}
+		});
+
+		return recordingSubview;
+	}
+
+	/**
+	 * Makes the middle subview active using a one second slide, and waits until the slide is
+	 * part of the way through. The middle subview is made opaque, so that it hides the views it
+	 * slides over.
+	 *
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting
+	 */
+	private void startSlideBehindMiddleSubview() throws InterruptedException {
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				middleSubviewDirect.setBackgroundColor(Color.GREEN);
+				testViewDirect.setAnimationDurationMs(1000);
+				testViewDirect.makeViewActive(MIDDLE_SUBVIEW_KEY, true);
+			}
+		});
+
+		Thread.sleep(300);
+	}
+
+	/**
+	 * Draws the test view into a bitmap and returns the colour of its centre pixel. Must be called
+	 * on the main thread.
+	 *
+	 * @return the colour of the centre pixel
+	 */
+	private int drawCentrePixel() {
+		final Bitmap bitmap = Bitmap.createBitmap(testViewDirect.getWidth(),
+				testViewDirect.getHeight(), Bitmap.Config.ARGB_8888);
+		testViewDirect.draw(new Canvas(bitmap));
+
+		final int centrePixel = bitmap.getPixel(bitmap.getWidth() / 2, bitmap.getHeight() / 2);
+		bitmap.recycle();
+
+		return centrePixel;
+	}
+
+	/**
+	 * Measures and lays out the test view at its current size, so that a layout pass occurs
+	 * immediately rather than on the next frame. Must be called on the main thread.
+	 */
+	private void runLayoutPass() {
+		runLayoutPass(testViewDirect.getHeight());
+	}
+
+	/**
+	 * Measures and lays out the test view at its current width and the supplied height, so that
+	 * the test view is resized immediately rather than on the next frame. Must be called on the
+	 * main thread.
+	 *
+	 * @param height
+	 * 		the height to give the test view, measured in pixels
+	 */
+	private void runLayoutPass(final int height) {
+		testViewDirect.measure(
+				MeasureSpec.makeMeasureSpec(testViewDirect.getWidth(), MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+		testViewDirect.layout(testViewDirect.getLeft(), testViewDirect.getTop(),
+				testViewDirect.getRight(), testViewDirect.getTop() + height);
+	}
+
 	/**
 	 * Creates a VertigoFrameLayout with the supplied state.
 	 *
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.matthewtamlin.vertigo.library.TransitionQuality.FULL;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.INSTANT;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.LAYERED;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.SHORTENED;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the TransitionQualityController class. The tests are in the package of the
+ * library, since the class is package-private.
+ */
+public class TestTransitionQualityController {
+	/**
+	 * The refresh rate of the simulated display, measured in frames per second.
+	 */
+	private static final float REFRESH_RATE = 50;
+
+	/**
+	 * The interval between the frames of the simulated display, measured in milliseconds.
+	 */
+	private static final long FRAME_INTERVAL_MS = 20;
+
+	/**
+	 * The controller under test.
+	 */
+	private TransitionQualityController controller;
+
+	/**
+	 * Sets up the test environment.
+	 */
+	@Before
+	public void setup() {
+		controller = new TransitionQualityController();
+	}
+
+	/**
+	 * Test to ensure that a new controller uses the highest quality. The test will only pass if
+	 * the quality is {@link TransitionQuality#FULL}.
+	 */
+	@Test
+	public void testGetQuality_initiallyFull() {
+		assertThat(controller.getQuality(), is(FULL));
+	}
+
+	/**
+	 * Test to ensure that the quality is lowered one level at a time after consecutive janky
+	 * transitions. The test will only pass if a single janky transition has no effect, every
+	 * second janky transition lowers the quality, and the quality never goes below {@link
+	 * TransitionQuality#INSTANT}.
+	 */
+	@Test
+	public void testOnAnimatedTransitionEnded_consecutiveJankyTransitionsStepDown() {
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(FULL));
+
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(SHORTENED));
+
+		playJankyTransition();
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(LAYERED));
+
+		playJankyTransition();
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(INSTANT));
+
+		playJankyTransition();
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(INSTANT));
+	}
+
+	/**
+	 * Test to ensure that a smooth transition interrupts a run of janky transitions. The test
+	 * will only pass if janky transitions separated by a smooth transition do not lower the
+	 * quality.
+	 */
+	@Test
+	public void testOnAnimatedTransitionEnded_smoothTransitionResetsJankyCount() {
+		playJankyTransition();
+		playSmoothTransition();
+		playJankyTransition();
+
+		assertThat(controller.getQuality(), is(FULL));
+	}
+
+	/**
+	 * Test to ensure that the quality is raised one level after five consecutive smooth
+	 * transitions. The test will only pass if four smooth transitions have no effect, and the
+	 * fifth raises the quality.
+	 */
+	@Test
+	public void testOnAnimatedTransitionEnded_consecutiveSmoothTransitionsStepUp() {
+		stepDownTo(LAYERED);
+
+		for (int i = 0; i < 4; i++) {
+			playSmoothTransition();
+		}
+
+		assertThat(controller.getQuality(), is(LAYERED));
+
+		playSmoothTransition();
+		assertThat(controller.getQuality(), is(SHORTENED));
+
+		for (int i = 0; i < 5; i++) {
+			playSmoothTransition();
+		}
+
+		assertThat(controller.getQuality(), is(FULL));
+
+		for (int i = 0; i < 5; i++) {
+			playSmoothTransition();
+		}
+
+		assertThat(controller.getQuality(), is(FULL));
+	}
+
+	/**
+	 * Test to ensure that a transition is only considered janky if more than a fifth of its
+	 * frames are dropped. The test will only pass if transitions which drop exactly a fifth of
+	 * their frames leave the quality unchanged, and transitions which drop more lower it.
+	 */
+	@Test
+	public void testOnAnimatedTransitionEnded_droppedFrameThreshold() {
+		// Ten frames expected and two dropped
+		playTransition(1, 1, 1, 1, 1, 1, 2, 2);
+		playTransition(1, 1, 1, 1, 1, 1, 2, 2);
+		assertThat(controller.getQuality(), is(FULL));
+
+		// Nine frames expected and two dropped
+		playTransition(1, 1, 1, 1, 1, 2, 2);
+		playTransition(1, 1, 1, 1, 1, 2, 2);
+		assertThat(controller.getQuality(), is(SHORTENED));
+	}
+
+	/**
+	 * Test to ensure that transitions with no measured frames are ignored. The test will only
+	 * pass if transitions with a single frame do not change the quality, and do not interrupt a
+	 * run of janky transitions.
+	 */
+	@Test
+	public void testOnAnimatedTransitionEnded_transitionWithoutFramesIgnored() {
+		playJankyTransition();
+		playTransition();
+		playTransition();
+		assertThat(controller.getQuality(), is(FULL));
+
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(SHORTENED));
+	}
+
+	/**
+	 * Test to ensure that frames are measured against the refresh rate of the display. The test
+	 * will only pass if frames delivered every 20 milliseconds are smooth on a 50 Hz display,
+	 * janky on a 100 Hz display, and smooth when the refresh rate is unknown and assumed to be
+	 * 60 Hz.
+	 */
+	@Test
+	public void testOnTransitionStarted_usesDisplayRefreshRate() {
+		for (int i = 0; i < 2; i++) {
+			playTransitionAtRefreshRate(50);
+		}
+
+		assertThat(controller.getQuality(), is(FULL));
+
+		for (int i = 0; i < 2; i++) {
+			playTransitionAtRefreshRate(0);
+		}
+
+		assertThat(controller.getQuality(), is(FULL));
+
+		for (int i = 0; i < 2; i++) {
+			playTransitionAtRefreshRate(100);
+		}
+
+		assertThat(controller.getQuality(), is(SHORTENED));
+	}
+
+	/**
+	 * Test to ensure that the level above {@link TransitionQuality#INSTANT} is probed after ten
+	 * instant transitions. The test will only pass if nine instant transitions have no effect,
+	 * and the tenth raises the quality.
+	 */
+	@Test
+	public void testOnInstantTransitionEnded_probesLevelAbove() {
+		stepDownTo(INSTANT);
+
+		for (int i = 0; i < 9; i++) {
+			controller.onInstantTransitionEnded();
+		}
+
+		assertThat(controller.getQuality(), is(INSTANT));
+
+		controller.onInstantTransitionEnded();
+		assertThat(controller.getQuality(), is(LAYERED));
+
+		// A janky probe steps straight back down once the janky count is reached
+		playJankyTransition();
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(INSTANT));
+	}
+
+	/**
+	 * Test to ensure that instant transitions are ignored unless the quality is {@link
+	 * TransitionQuality#INSTANT}. The test will only pass if instant transitions neither raise the
+	 * quality nor count towards the smooth transitions needed to raise it.
+	 */
+	@Test
+	public void testOnInstantTransitionEnded_ignoredAboveInstant() {
+		stepDownTo(SHORTENED);
+
+		for (int i = 0; i < 10; i++) {
+			controller.onInstantTransitionEnded();
+		}
+
+		for (int i = 0; i < 4; i++) {
+			playSmoothTransition();
+		}
+
+		assertThat(controller.getQuality(), is(SHORTENED));
+	}
+
+	/**
+	 * Test to ensure that the {@link TransitionQualityController#reset()} method restores the
+	 * highest quality and discards the observations. The test will only pass if the quality is
+	 * {@link TransitionQuality#FULL} after the reset, and a janky transition before the reset
+	 * does not count towards lowering the quality.
+	 */
+	@Test
+	public void testReset() {
+		stepDownTo(LAYERED);
+		playJankyTransition();
+
+		controller.reset();
+		assertThat(controller.getQuality(), is(FULL));
+
+		playJankyTransition();
+		assertThat(controller.getQuality(), is(FULL));
+	}
+
+	/**
+	 * Plays janky transitions until the controller reaches the supplied quality.
+	 *
+	 * @param quality
+	 * 		the quality to reach, not null
+	 */
+	private void stepDownTo(final TransitionQuality quality) {
+		while (controller.getQuality() != quality) {
+			playJankyTransition();
+		}
+	}
+
+	/**
+	 * Reports a transition to the controller which renders every frame.
+	 */
+	private void playSmoothTransition() {
+		playTransition(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+	}
+
+	/**
+	 * Reports a transition to the controller which drops two of every three frames.
+	 */
+	private void playJankyTransition() {
+		playTransition(3, 3, 3, 3);
+	}
+
+	/**
+	 * Reports a transition to the controller on the simulated display.
+	 *
+	 * @param frameGaps
+	 * 		the number of display frames between each rendered frame and the previous one, where
+	 * 		one means no frames were dropped
+	 */
+	private void playTransition(final int... frameGaps) {
+		controller.onTransitionStarted(REFRESH_RATE);
+
+		long frameTimeMs = 1000;
+		controller.onTransitionFrame(frameTimeMs);
+
+		for (final int frameGap : frameGaps) {
+			frameTimeMs += frameGap * FRAME_INTERVAL_MS;
+			controller.onTransitionFrame(frameTimeMs);
+		}
+
+		controller.onAnimatedTransitionEnded();
+	}
+
+	/**
+	 * Reports a transition to the controller which renders ten frames 20 milliseconds apart, on
+	 * a display with the supplied refresh rate.
+	 *
+	 * @param refreshRate
+	 * 		the refresh rate of the display, measured in frames per second
+	 */
+	private void playTransitionAtRefreshRate(final float refreshRate) {
+		controller.onTransitionStarted(refreshRate);
+
+		for (int i = 0; i <= 10; i++) {
+			controller.onTransitionFrame(1000 + i * FRAME_INTERVAL_MS);
+		}
+
+		controller.onAnimatedTransitionEnded();
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library_tests;
+
+import com.matthewtamlin.vertigo.library.SimpleVertigoCoordinator;
+import com.matthewtamlin.vertigo.library.TransitionHandle;
+import com.matthewtamlin.vertigo.library.VertigoCoordinator;
+import com.matthewtamlin.vertigo.library.VertigoCoordinator.ActiveViewChangedListener;
+import com.matthewtamlin.vertigo.library.VertigoFrameLayout;
+import com.matthewtamlin.vertigo.library.VertigoView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.COMPLETED;
+import static com.matthewtamlin.vertigo.library.VertigoView.State.ACTIVE;
+import static com.matthewtamlin.vertigo.library.VertigoView.State.INACTIVE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests the submission of commands to a SimpleVertigoCoordinator from other threads. The main
+ * looper is paused, so that the drains posted by the coordinator can be counted before they run.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class TestCommandSubmission {
+	/**
+	 * A key which identifies the first view in the coordinator.
+	 */
+	private static final String FIRST_VIEW_KEY = "first view";
+
+	/**
+	 * A key which identifies the second view in the coordinator.
+	 */
+	private static final String SECOND_VIEW_KEY = "second view";
+
+	/**
+	 * The number of commands to submit in a burst.
+	 */
+	private static final int BURST_SIZE = 100;
+
+	/**
+	 * The coordinator under test.
+	 */
+	private SimpleVertigoCoordinator coordinator;
+
+	/**
+	 * Creates a coordinator containing two views, and pauses the main looper.
+	 */
+	@Before
+	public void setup() {
+		coordinator = new SimpleVertigoCoordinator(RuntimeEnvironment.application);
+
+		final VertigoFrameLayout firstView = new VertigoFrameLayout(RuntimeEnvironment
+				.application);
+		firstView.onStateChanged(INACTIVE);
+
+		final VertigoFrameLayout secondView = new VertigoFrameLayout(RuntimeEnvironment
+				.application);
+		secondView.onStateChanged(ACTIVE);
+
+		coordinator.addView(firstView);
+		coordinator.addView(secondView);
+		coordinator.registerViewForCoordination(firstView, FIRST_VIEW_KEY);
+		coordinator.registerViewForCoordination(secondView, SECOND_VIEW_KEY);
+
+		ShadowLooper.pauseMainLooper();
+	}
+
+	/**
+	 * Test to ensure that a burst of commands submitted from a background thread is executed by a
+	 * single drain on the main thread. The test will only pass if one drain is posted for the
+	 * whole burst, and every command has executed once it runs.
+	 *
+	 * @throws Exception
+	 * 		if the test is interrupted while waiting for the background thread
+	 */
+	@Test
+	public void testSubmitMakeViewActive_burstPostsSingleDrain() throws Exception {
+		final TransitionHandle[] handles = new TransitionHandle[BURST_SIZE];
+
+		final Thread submittingThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < BURST_SIZE; i++) {
+					final String key = i % 2 == 0 ? FIRST_VIEW_KEY : SECOND_VIEW_KEY;
+					handles[i] = coordinator.submitMakeViewActive(key, false, null);
+				}
+			}
+		});
+
+		submittingThread.start();
+		submittingThread.join();
+
+		assertThat(Robolectric.getForegroundThreadScheduler().size(), is(1));
+
+		Robolectric.flushForegroundThreadScheduler();
+
+		for (final TransitionHandle handle : handles) {
+			assertThat(handle.getOutcome(), is(COMPLETED));
+		}
+
+		assertThat(coordinator.getSnapshot().getActiveKey(), is(SECOND_VIEW_KEY));
+	}
+
+	/**
+	 * Test to ensure that commands submitted while the pending commands are being drained are
+	 * executed by the same drain. The test will only pass if a command submitted by a listener
+	 * during the drain executes, and no further drain is posted.
+	 */
+	@Test
+	public void testSubmitMakeViewActive_submittedDuringDrainExecutedBySameDrain() {
+		final TransitionHandle[] nestedHandle = new TransitionHandle[1];
+
+		coordinator.submitMakeViewActive(FIRST_VIEW_KEY, false, new ActiveViewChangedListener() {
+			@Override
+			public void onActiveViewChanged(final VertigoCoordinator coordinator,
+					final VertigoView activeView) {
+				nestedHandle[0] = TestCommandSubmission.this.coordinator.submitMakeViewActive(
+						SECOND_VIEW_KEY, false, null);
+			}
+		});
+
+		assertThat(Robolectric.getForegroundThreadScheduler().size(), is(1));
+
+		Robolectric.getForegroundThreadScheduler().runOneTask();
+
+		assertThat(nestedHandle[0].getOutcome(), is(COMPLETED));
+		assertThat(coordinator.getSnapshot().getActiveKey(), is(SECOND_VIEW_KEY));
+		assertThat(Robolectric.getForegroundThreadScheduler().size(), is(0));
+	}
+}
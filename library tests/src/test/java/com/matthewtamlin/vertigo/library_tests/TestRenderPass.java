@@ -0,0 +1,547 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library_tests;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
+
+import com.matthewtamlin.vertigo.library.SimpleVertigoCoordinator;
+import com.matthewtamlin.vertigo.library.VertigoFrameLayout;
+import com.matthewtamlin.vertigo.library.VertigoLinearLayout;
+import com.matthewtamlin.vertigo.library.VertigoRelativeLayout;
+import com.matthewtamlin.vertigo.library.VertigoView;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static android.view.View.MeasureSpec.EXACTLY;
+import static android.view.View.MeasureSpec.makeMeasureSpec;
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Benchmarks a full render pass (measure, layout and draw) of a SimpleVertigoCoordinator hosting
+ * N children. The coordinator is rendered headlessly into a software Canvas, so the suite runs on
+ * the JVM without a device. The benchmarks cover every type of VertigoView and several values of
+ * N, with all children up, all children down, or half of each.
+ * <p>
+ * Every timed frame records which children had their content measured, laid out and drawn, and
+ * the number of draw calls made. These counts are asserted, since they do not depend on the
+ * machine running the suite. The average time per frame is written to {@link #REPORT_FILE} along
+ * with the counts, so that runs before and after a change to how down or occluded children are
+ * handled can be compared. The canvas does not rasterise, so the times reflect the cost of the
+ * view code rather than of rendering pixels. The number of timed frames can be changed using the
+ * "vertigo.benchmark.frames" system property.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class TestRenderPass {
+	/**
+	 * The width of the coordinator, measured in pixels.
+	 */
+	private static final int WIDTH_PX = 1080;
+
+	/**
+	 * The height of the coordinator, measured in pixels.
+	 */
+	private static final int HEIGHT_PX = 1920;
+
+	/**
+	 * The numbers of children to test.
+	 */
+	private static final int[] CHILD_COUNTS = {1, 4, 16, 64};
+
+	/**
+	 * The number of text views to add to each child, so that each child has content to measure,
+	 * layout and draw.
+	 */
+	private static final int CONTENT_VIEWS_PER_CHILD = 8;
+
+	/**
+	 * The number of frames to render before timing begins.
+	 */
+	private static final int WARM_UP_FRAMES = 5;
+
+	/**
+	 * The number of frames to time.
+	 */
+	private static final int TIMED_FRAMES = Integer.getInteger("vertigo.benchmark.frames", 50);
+
+	/**
+	 * The file the baseline is written to, relative to the module directory.
+	 */
+	private static final String REPORT_FILE = "build/reports/vertigo/render-pass-baseline.csv";
+
+	/**
+	 * The rows of the baseline report, one per benchmarked coordinator. Written once all
+	 * benchmarks have run.
+	 */
+	private static final List<String> reportRows = new ArrayList<>();
+
+	/**
+	 * The types of child to test.
+	 */
+	private enum ChildType {
+		FRAME_LAYOUT,
+		LINEAR_LAYOUT,
+		RELATIVE_LAYOUT
+	}
+
+	/**
+	 * The positions the children can be placed in before the frames are rendered.
+	 */
+	private enum Configuration {
+		ALL_UP,
+		ALL_DOWN,
+		MIXED
+	}
+
+	/**
+	 * The context to create the views with.
+	 */
+	private Context context;
+
+	/**
+	 * The canvas to draw the coordinator into.
+	 */
+	private Canvas canvas;
+
+	/**
+	 * The children of the coordinator whose content was measured in the current pass.
+	 */
+	private final Set<View> measuredChildren = new HashSet<>();
+
+	/**
+	 * The children of the coordinator whose content was laid out in the current pass.
+	 */
+	private final Set<View> laidOutChildren = new HashSet<>();
+
+	/**
+	 * The children of the coordinator whose content was drawn in the current pass.
+	 */
+	private final Set<View> drawnChildren = new HashSet<>();
+
+	/**
+	 * The number of times the content of the children has been drawn in the current benchmark.
+	 */
+	private int contentDrawCount;
+
+	/**
+	 * The number of times the coordinator has dispatched a draw to its children in the current
+	 * benchmark.
+	 */
+	private int coordinatorDrawCount;
+
+	/**
+	 * Creates the context and the canvas.
+	 */
+	@Before
+	public void setup() {
+		context = RuntimeEnvironment.application;
+		canvas = new Canvas(Bitmap.createBitmap(WIDTH_PX, HEIGHT_PX, Bitmap.Config.ARGB_8888));
+	}
+
+	/**
+	 * Writes the baseline report.
+	 *
+	 * @throws IOException
+	 * 		if the report cannot be written
+	 */
+	@AfterClass
+	public static void writeReport() throws IOException {
+		final File file = new File(REPORT_FILE);
+
+		if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+			throw new IOException("Cannot create the report directory " + file.getParent());
+		}
+
+		final Writer writer = new FileWriter(file);
+
+		try {
+			writer.write("configuration,child type,children,measured,laid out,drawn," +
+					"content draws per frame,ns per frame\n");
+
+			for (final String row : reportRows) {
+				writer.write(row);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Benchmarks render passes when every child is in the up position. The benchmark will only
+	 * pass if the content of every child is measured, laid out and drawn once per frame.
+	 */
+	@Test
+	public void testRenderPass_allUp() {
+		runBenchmarks(Configuration.ALL_UP);
+	}
+
+	/**
+	 * Benchmarks render passes when every child except the active child is in the down position.
+	 * The benchmark will only pass if the content of the down children is never measured or laid
+	 * out, and the content of every child is drawn once per frame.
+	 */
+	@Test
+	public void testRenderPass_allDown() {
+		runBenchmarks(Configuration.ALL_DOWN);
+	}
+
+	/**
+	 * Benchmarks render passes when half of the children are in the up position and the other half
+	 * are in the down position. The benchmark will only pass if the content of the down children
+	 * is never measured or laid out, and the content of every child is drawn once per frame.
+	 */
+	@Test
+	public void testRenderPass_mixed() {
+		runBenchmarks(Configuration.MIXED);
+	}
+
+	/**
+	 * Benchmarks every child type and child count in the supplied configuration. Each timed frame
+	 * is checked to ensure that exactly the children in the up position had their content measured
+	 * and laid out, and that every visible child had its content drawn. Parked children are still
+	 * drawn, since the coordinator only clips the children it draws during slides. The results are
+	 * added to the baseline report.
+	 *
+	 * @param configuration
+	 * 		the configuration to benchmark, not null
+	 */
+	private void runBenchmarks(final Configuration configuration) {
+		checkNotNull(configuration, "configuration cannot be null.");
+
+		for (final ChildType childType : ChildType.values()) {
+			for (final int childCount : CHILD_COUNTS) {
+				final SimpleVertigoCoordinator coordinator = createCoordinator(childType,
+						childCount);
+				arrange(coordinator, childCount, configuration);
+
+				// Settle any changes made by arranging the children before timing
+				for (int i = 0; i < WARM_UP_FRAMES; i++) {
+					renderFrame(coordinator);
+				}
+
+				final Set<View> upChildren = getUpChildren(coordinator);
+				final Set<View> visibleChildren = getVisibleChildren(coordinator);
+				final String description = configuration + " " + childType + " N=" + childCount;
+
+				assertThat(description, upChildren.size(), is(expectedUpCount(childCount,
+						configuration)));
+
+				contentDrawCount = 0;
+				coordinatorDrawCount = 0;
+				long elapsedNs = 0;
+
+				for (int i = 0; i < TIMED_FRAMES; i++) {
+					measuredChildren.clear();
+					laidOutChildren.clear();
+					drawnChildren.clear();
+
+					final long startNs = System.nanoTime();
+					renderFrame(coordinator);
+					elapsedNs += System.nanoTime() - startNs;
+
+					assertThat(description, measuredChildren, is(upChildren));
+					assertThat(description, laidOutChildren, is(upChildren));
+					assertThat(description, drawnChildren, is(visibleChildren));
+				}
+
+				assertThat(description, coordinatorDrawCount, is(TIMED_FRAMES));
+				assertThat(description, contentDrawCount, is(TIMED_FRAMES *
+						CONTENT_VIEWS_PER_CHILD * visibleChildren.size()));
+
+				reportRows.add(String.format(Locale.US, "%s,%s,%d,%d,%d,%d,%d,%d",
+						configuration, childType, childCount, upChildren.size(),
+						upChildren.size(), visibleChildren.size(),
+						contentDrawCount / TIMED_FRAMES, elapsedNs / TIMED_FRAMES));
+			}
+		}
+	}
+
+	/**
+	 * Creates a coordinator containing the supplied number of registered children. Every child
+	 * starts in the up position. The coordinator is measured and laid out before it is returned.
+	 *
+	 * @param childType
+	 * 		the type of child to create, not null
+	 * @param childCount
+	 * 		the number of children to create
+	 * @return the coordinator, not null
+	 */
+	private SimpleVertigoCoordinator createCoordinator(final ChildType childType,
+			final int childCount) {
+		final SimpleVertigoCoordinator coordinator = new SimpleVertigoCoordinator(context) {
+			@Override
+			protected void dispatchDraw(final Canvas canvas) {
+				super.dispatchDraw(canvas);
+				coordinatorDrawCount++;
+			}
+		};
+
+		for (int i = 0; i < childCount; i++) {
+			final View child = createChild(childType);
+			child.setLayoutParams(new FrameLayout.LayoutParams(MATCH_PARENT, MATCH_PARENT));
+
+			coordinator.addView(child);
+			coordinator.registerViewForCoordination((VertigoView) child, keyFor(i));
+		}
+
+		renderFrame(coordinator);
+
+		return coordinator;
+	}
+
+	/**
+	 * Creates a child of the supplied type, filled with text views which record when they are
+	 * measured, laid out and drawn.
+	 *
+	 * @param childType
+	 * 		the type of child to create, not null
+	 * @return the child, not null
+	 */
+	private View createChild(final ChildType childType) {
+		final ViewGroup child;
+
+		switch (childType) {
+			case LINEAR_LAYOUT:
+				child = new VertigoLinearLayout(context);
+				((LinearLayout) child).setOrientation(LinearLayout.VERTICAL);
+				break;
+			case RELATIVE_LAYOUT:
+				child = new VertigoRelativeLayout(context);
+				break;
+			default:
+				child = new VertigoFrameLayout(context);
+		}
+
+		for (int i = 0; i < CONTENT_VIEWS_PER_CHILD; i++) {
+			final TextView content = new RecordingTextView(context);
+			content.setId(i + 1);
+			content.setText("Content " + i);
+
+			if (childType == ChildType.RELATIVE_LAYOUT) {
+				final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(
+						MATCH_PARENT, WRAP_CONTENT);
+
+				if (i > 0) {
+					params.addRule(RelativeLayout.BELOW, i);
+				}
+
+				content.setLayoutParams(params);
+			} else {
+				content.setLayoutParams(new ViewGroup.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+			}
+
+			child.addView(content);
+		}
+
+		return child;
+	}
+
+	/**
+	 * Moves the children of the supplied coordinator into the supplied configuration without
+	 * animation.
+	 *
+	 * @param coordinator
+	 * 		the coordinator to arrange, not null
+	 * @param childCount
+	 * 		the number of children in the coordinator
+	 * @param configuration
+	 * 		the configuration to arrange the children in, not null
+	 */
+	private void arrange(final SimpleVertigoCoordinator coordinator, final int childCount,
+			final Configuration configuration) {
+		if (configuration == Configuration.ALL_UP) {
+			return;
+		}
+
+		// Activating the first child moves every other child down
+		coordinator.makeViewActive(keyFor(0), false, null);
+
+		if (configuration == Configuration.MIXED) {
+			for (int i = 1; i < childCount / 2; i++) {
+				coordinator.makeViewActive(keyFor(i), false, null);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of children which should be in the up position once a coordinator has
+	 * been arranged.
+	 *
+	 * @param childCount
+	 * 		the number of children in the coordinator
+	 * @param configuration
+	 * 		the configuration the children were arranged in, not null
+	 * @return the number of children in the up position
+	 */
+	private static int expectedUpCount(final int childCount, final Configuration configuration) {
+		switch (configuration) {
+			case ALL_DOWN:
+				return 1;
+			case MIXED:
+				return Math.max(1, childCount / 2);
+			default:
+				return childCount;
+		}
+	}
+
+	/**
+	 * Returns the children of the supplied coordinator which are in the up position.
+	 *
+	 * @param coordinator
+	 * 		the coordinator to query, not null
+	 * @return the children in the up position, not null
+	 */
+	private static Set<View> getUpChildren(final SimpleVertigoCoordinator coordinator) {
+		final Set<View> upChildren = new HashSet<>();
+
+		for (final String key : coordinator.getSnapshot().getUpKeys()) {
+			upChildren.add((View) coordinator.getView(key));
+		}
+
+		return upChildren;
+	}
+
+	/**
+	 * Returns the children of the supplied coordinator which are visible.
+	 *
+	 * @param coordinator
+	 * 		the coordinator to query, not null
+	 * @return the visible children, not null
+	 */
+	private static Set<View> getVisibleChildren(final SimpleVertigoCoordinator coordinator) {
+		final Set<View> visibleChildren = new HashSet<>();
+
+		for (int i = 0; i < coordinator.getChildCount(); i++) {
+			final View child = coordinator.getChildAt(i);
+
+			if (child.getVisibility() == View.VISIBLE) {
+				visibleChildren.add(child);
+			}
+		}
+
+		return visibleChildren;
+	}
+
+	/**
+	 * Forces a full measure and layout of the supplied coordinator and all of its descendants,
+	 * then draws it into the canvas.
+	 *
+	 * @param coordinator
+	 * 		the coordinator to render, not null
+	 */
+	private void renderFrame(final SimpleVertigoCoordinator coordinator) {
+		forceLayout(coordinator);
+
+		coordinator.measure(makeMeasureSpec(WIDTH_PX, EXACTLY), makeMeasureSpec(HEIGHT_PX,
+				EXACTLY));
+		coordinator.layout(0, 0, WIDTH_PX, HEIGHT_PX);
+		coordinator.draw(canvas);
+	}
+
+	/**
+	 * Marks the supplied view and all of its descendants as needing to be measured and laid out.
+	 *
+	 * @param view
+	 * 		the view to mark, not null
+	 */
+	private static void forceLayout(final View view) {
+		view.forceLayout();
+
+		if (view instanceof ViewGroup) {
+			final ViewGroup viewGroup = (ViewGroup) view;
+
+			for (int i = 0; i < viewGroup.getChildCount(); i++) {
+				forceLayout(viewGroup.getChildAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the key used to register a child.
+	 *
+	 * @param index
+	 * 		the index of the child
+	 * @return the key, not null
+	 */
+	private static String keyFor(final int index) {
+		return "child " + index;
+	}
+
+	/**
+	 * A TextView which records its parent each time it is measured, laid out or drawn.
+	 */
+	private class RecordingTextView extends TextView {
+		/**
+		 * Constructs a new RecordingTextView.
+		 *
+		 * @param context
+		 * 		the context the view is operating in
+		 */
+		public RecordingTextView(final Context context) {
+			super(context);
+		}
+
+		@Override
+		protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+			super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+			measuredChildren.add((View) getParent());
+		}
+
+		@Override
+		protected void onLayout(final boolean changed, final int left, final int top,
+				final int right, final int bottom) {
+			super.onLayout(changed, left, top, right, bottom);
+			laidOutChildren.add((View) getParent());
+		}
+
+		@Override
+		protected void onDraw(final Canvas canvas) {
+			super.onDraw(canvas);
+			drawnChildren.add((View) getParent());
+			contentDrawCount++;
+		}
+	}
+}
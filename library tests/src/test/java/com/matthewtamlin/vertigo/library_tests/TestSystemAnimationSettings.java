@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library_tests;
+
+import android.app.Activity;
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.widget.FrameLayout;
+
+import com.matthewtamlin.vertigo.library.SimpleVertigoCoordinator;
+import com.matthewtamlin.vertigo.library.TransitionHandle;
+import com.matthewtamlin.vertigo.library.VertigoFrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static android.content.Context.POWER_SERVICE;
+import static com.matthewtamlin.vertigo.library.VertigoView.State.ACTIVE;
+import static com.matthewtamlin.vertigo.library.VertigoView.State.INACTIVE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests that a SimpleVertigoCoordinator follows the system settings which disable animations. The
+ * settings are cached by the coordinator, so each test checks that the cache is refreshed by the
+ * notifications the system sends when the settings change, and only by them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class TestSystemAnimationSettings {
+	/**
+	 * A key which identifies the first view in the coordinator.
+	 */
+	private static final String FIRST_VIEW_KEY = "first view";
+
+	/**
+	 * A key which identifies the second view in the coordinator.
+	 */
+	private static final String SECOND_VIEW_KEY = "second view";
+
+	/**
+	 * Hosts the coordinator.
+	 */
+	private Activity activity;
+
+	/**
+	 * The coordinator under test.
+	 */
+	private SimpleVertigoCoordinator coordinator;
+
+	/**
+	 * Used to change the animator duration scale.
+	 */
+	private ContentResolver contentResolver;
+
+	/**
+	 * The power manager of the test environment.
+	 */
+	private PowerManager powerManager;
+
+	/**
+	 * The key of the view to make active in the next transition.
+	 */
+	private String nextActiveKey = FIRST_VIEW_KEY;
+
+	/**
+	 * Creates a coordinator containing two views, and attaches it to the window of an activity
+	 * with animations enabled.
+	 */
+	@Before
+	public void setup() {
+		activity = Robolectric.setupActivity(Activity.class);
+		contentResolver = activity.getContentResolver();
+		powerManager = (PowerManager) activity.getSystemService(POWER_SERVICE);
+
+		setAnimatorDurationScale(1);
+		shadowOf(powerManager).setIsPowerSaveMode(false);
+
+		coordinator = new SimpleVertigoCoordinator(activity);
+
+		final VertigoFrameLayout firstView = new VertigoFrameLayout(activity);
+		firstView.onStateChanged(INACTIVE);
+
+		final VertigoFrameLayout secondView = new VertigoFrameLayout(activity);
+		secondView.onStateChanged(ACTIVE);
+
+		coordinator.addView(firstView);
+		coordinator.addView(secondView);
+		coordinator.registerViewForCoordination(firstView, FIRST_VIEW_KEY);
+		coordinator.registerViewForCoordination(secondView, SECOND_VIEW_KEY);
+
+		activity.setContentView(coordinator);
+	}
+
+	/**
+	 * Test to ensure that transitions are animated when the system settings allow it. The test
+	 * will only pass if a transition requested with animation is still running after it starts.
+	 */
+	@Test
+	public void testDefaultSettings_transitionsAnimated() {
+		assertThat(isNextTransitionAnimated(), is(true));
+	}
+
+	/**
+	 * Test to ensure that the coordinator follows changes to the animator duration scale. The
+	 * test will only pass if transitions are instant once a scale of zero has been reported, and
+	 * animated again once a scale of one has been reported.
+	 */
+	@Test
+	public void testAnimatorDurationScale_changeNotified() {
+		setAnimatorDurationScale(0);
+		notifyAnimatorDurationScaleChanged();
+
+		assertThat(isNextTransitionAnimated(), is(false));
+
+		setAnimatorDurationScale(1);
+		notifyAnimatorDurationScaleChanged();
+
+		assertThat(isNextTransitionAnimated(), is(true));
+	}
+
+	/**
+	 * Test to ensure that the animator duration scale is cached rather than read for each
+	 * transition. The test will only pass if changing the scale has no effect until the change is
+	 * reported.
+	 */
+	@Test
+	public void testAnimatorDurationScale_cachedUntilChangeNotified() {
+		setAnimatorDurationScale(0);
+
+		assertThat(isNextTransitionAnimated(), is(true));
+
+		notifyAnimatorDurationScaleChanged();
+
+		assertThat(isNextTransitionAnimated(), is(false));
+	}
+
+	/**
+	 * Test to ensure that the animator duration scale is read again when the coordinator is
+	 * attached to a window, since changes are not observed while it is detached. The test will
+	 * only pass if a scale of zero set while the coordinator is detached disables animations once
+	 * it is attached again.
+	 */
+	@Test
+	public void testAnimatorDurationScale_readWhenAttached() {
+		activity.setContentView(new FrameLayout(activity));
+
+		setAnimatorDurationScale(0);
+
+		activity.setContentView(coordinator);
+
+		assertThat(isNextTransitionAnimated(), is(false));
+	}
+
+	/**
+	 * Test to ensure that the coordinator follows changes to the power save mode. The test will
+	 * only pass if entering power save mode has no effect until the change is broadcast, after
+	 * which transitions are instant, and transitions are animated again once leaving power save
+	 * mode is broadcast.
+	 */
+	@Test
+	public void testPowerSaveMode_changeBroadcast() {
+		shadowOf(powerManager).setIsPowerSaveMode(true);
+
+		assertThat(isNextTransitionAnimated(), is(true));
+
+		broadcastPowerSaveModeChanged();
+
+		assertThat(isNextTransitionAnimated(), is(false));
+
+		shadowOf(powerManager).setIsPowerSaveMode(false);
+		broadcastPowerSaveModeChanged();
+
+		assertThat(isNextTransitionAnimated(), is(true));
+	}
+
+	/**
+	 * Requests a transition with animation, and then ends it. The views are made active in turn,
+	 * so that every request changes the active view.
+	 *
+	 * @return true if the transition was still running after it started, false if it completed
+	 * instantly
+	 */
+	private boolean isNextTransitionAnimated() {
+		final TransitionHandle handle = coordinator.makeViewActive(nextActiveKey, true);
+		final boolean animated = !handle.isFinished();
+
+		handle.cancel();
+		nextActiveKey = nextActiveKey.equals(FIRST_VIEW_KEY) ? SECOND_VIEW_KEY : FIRST_VIEW_KEY;
+
+		return animated;
+	}
+
+	/**
+	 * Changes the animator duration scale without reporting the change.
+	 *
+	 * @param scale
+	 * 		the new scale
+	 */
+	private void setAnimatorDurationScale(final float scale) {
+		Settings.Global.putFloat(contentResolver, Settings.Global.ANIMATOR_DURATION_SCALE, scale);
+	}
+
+	/**
+	 * Reports a change to the animator duration scale to the registered observers, as the system
+	 * does when the setting changes.
+	 */
+	private void notifyAnimatorDurationScaleChanged() {
+		contentResolver.notifyChange(Settings.Global.getUriFor(Settings.Global
+				.ANIMATOR_DURATION_SCALE), null);
+		ShadowLooper.idleMainLooper();
+	}
+
+	/**
+	 * Broadcasts a change to the power save mode, as the system does when the mode changes.
+	 */
+	private void broadcastPowerSaveModeChanged() {
+		activity.sendBroadcast(new Intent(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+		ShadowLooper.idleMainLooper();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library_tests;
+
+import android.animation.TimeInterpolator;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.LinearInterpolator;
+import android.view.animation.OvershootInterpolator;
+
+import com.matthewtamlin.vertigo.library.TransitionEasing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the TransitionEasing class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 25)
+public class TestTransitionEasing {
+	/**
+	 * The number of evenly spaced inputs to compare the easing and the source interpolator at.
+	 */
+	private static final int COMPARED_INPUTS = 1000;
+
+	/**
+	 * The largest difference allowed between the easing and the source interpolator when using
+	 * the default number of samples.
+	 */
+	private static final float MAX_ERROR = 2e-4f;
+
+	/**
+	 * An interpolator which has rounding errors at both end points.
+	 */
+	private static final TimeInterpolator IMPRECISE_INTERPOLATOR = new TimeInterpolator() {
+		@Override
+		public float getInterpolation(final float input) {
+			return 0.001f + (input * 0.998f);
+		}
+	};
+
+	/**
+	 * Test to ensure that the {@link TransitionEasing#TransitionEasing(TimeInterpolator, int)}
+	 * constructor throws an exception when passed a null interpolator. The test will only pass if
+	 * an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullInterpolator() {
+		new TransitionEasing(null, 2);
+	}
+
+	/**
+	 * Test to ensure that the {@link TransitionEasing#TransitionEasing(TimeInterpolator, int)}
+	 * constructor throws an exception when passed too few samples. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_oneSample() {
+		new TransitionEasing(new LinearInterpolator(), 1);
+	}
+
+	/**
+	 * Test to ensure that the lookup table reproduces the source interpolator. The test will only
+	 * pass if the easing is within {@link #MAX_ERROR} of the source at every compared input, for
+	 * several standard interpolators.
+	 */
+	@Test
+	public void testGetInterpolation_matchesSourceInterpolator() {
+		checkMatchesSource(new LinearInterpolator());
+		checkMatchesSource(new AccelerateDecelerateInterpolator());
+		checkMatchesSource(new DecelerateInterpolator(2));
+		checkMatchesSource(new OvershootInterpolator());
+	}
+
+	/**
+	 * Test to ensure that the easing begins and ends exactly at 0 and 1, and holds those values
+	 * outside the range 0 to 1. The test will only pass if the end points are exact, even for a
+	 * source interpolator with rounding errors at its end points.
+	 */
+	@Test
+	public void testGetInterpolation_endPointsExact() {
+		final TransitionEasing[] easings = {
+				new TransitionEasing(new AccelerateDecelerateInterpolator()),
+				new TransitionEasing(IMPRECISE_INTERPOLATOR)};
+
+		for (final TransitionEasing easing : easings) {
+			assertThat(easing.getInterpolation(0), is(0f));
+			assertThat(easing.getInterpolation(1), is(1f));
+			assertThat(easing.getInterpolation(-0.5f), is(0f));
+			assertThat(easing.getInterpolation(1.5f), is(1f));
+		}
+	}
+
+	/**
+	 * Test to ensure that the easing blends linearly between samples. The test will only pass if
+	 * an easing with only the two end point samples is a straight line, regardless of the source
+	 * interpolator.
+	 */
+	@Test
+	public void testGetInterpolation_blendsBetweenSamples() {
+		final TransitionEasing easing = new TransitionEasing(new
+				AccelerateDecelerateInterpolator(), 2);
+
+		assertThat(easing.getSampleCount(), is(2));
+		assertThat(easing.getInterpolation(0.25f), is(0.25f));
+		assertThat(easing.getInterpolation(0.5f), is(0.5f));
+	}
+
+	/**
+	 * Checks that an easing with the default number of samples is within {@link #MAX_ERROR} of
+	 * the supplied interpolator at every compared input.
+	 *
+	 * @param source
+	 * 		the interpolator to sample, not null
+	 */
+	private static void checkMatchesSource(final TimeInterpolator source) {
+		final TransitionEasing easing = new TransitionEasing(source);
+
+		for (int i = 0; i <= COMPARED_INPUTS; i++) {
+			final float input = (float) i / COMPARED_INPUTS;
+			final float error = Math.abs(easing.getInterpolation(input) - source
+					.getInterpolation(input));
+
+			assertThat("Error at input " + input + " for " + source, error <= MAX_ERROR, is(true));
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An ordered sequence of views to make active, where each step has its own transition duration
+ * and dwell time. Sequences are played using {@link
+ * SimpleVertigoCoordinator#playSequence(ActivationSequence)}, which runs every step on a single
+ * timeline so that no frames are lost between steps. Instances are immutable and are created using
+ * a {@link Builder}.
+ */
+public final class ActivationSequence {
+	/**
+	 * The steps of the sequence, in order.
+	 */
+	private final List<Step> steps;
+
+	/**
+	 * Constructs a new ActivationSequence.
+	 *
+	 * @param steps
+	 * 		the steps of the sequence in order, not null
+	 */
+	private ActivationSequence(final List<Step> steps) {
+		this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+	}
+
+	/**
+	 * @return the steps of the sequence in order, unmodifiable, not null
+	 */
+	public List<Step> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * A single step of an ActivationSequence.
+	 */
+	public static final class Step {
+		/**
+		 * The key of the view to make active.
+		 */
+		private final String key;
+
+		/**
+		 * The length of time to use for the transition, measured in milliseconds.
+		 */
+		private final int durationMs;
+
+		/**
+		 * The length of time to wait after the transition before starting the next step, measured
+		 * in milliseconds.
+		 */
+		private final int dwellMs;
+
+		/**
+		 * Constructs a new Step.
+		 *
+		 * @param key
+		 * 		the key of the view to make active, not null
+		 * @param durationMs
+		 * 		the length of time to use for the transition, measured in milliseconds
+		 * @param dwellMs
+		 * 		the length of time to wait before the next step, measured in milliseconds
+		 */
+		private Step(final String key, final int durationMs, final int dwellMs) {
+			this.key = key;
+			this.durationMs = durationMs;
+			this.dwellMs = dwellMs;
+		}
+
+		/**
+		 * @return the key of the view to make active, not null
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return the length of time to use for the transition, measured in milliseconds
+		 */
+		public int getDurationMs() {
+			return durationMs;
+		}
+
+		/**
+		 * @return the length of time to wait after the transition before starting the next step,
+		 * measured in milliseconds
+		 */
+		public int getDwellMs() {
+			return dwellMs;
+		}
+	}
+
+	/**
+	 * Builds ActivationSequences.
+	 */
+	public static final class Builder {
+		/**
+		 * The steps added so far, in order.
+		 */
+		private final List<Step> steps = new ArrayList<>();
+
+		/**
+		 * Adds a step to the end of the sequence.
+		 *
+		 * @param key
+		 * 		the key of the view to make active, not null
+		 * @param durationMs
+		 * 		the length of time to use for the transition, measured in milliseconds, greater than
+		 * 		zero
+		 * @param dwellMs
+		 * 		the length of time to wait after the transition before starting the next step,
+		 * 		measured in milliseconds, not less than zero
+		 * @return this builder
+		 * @throws IllegalArgumentException
+		 * 		if {@code key} is null
+		 * @throws IllegalArgumentException
+		 * 		if {@code durationMs} is not greater than zero
+		 * @throws IllegalArgumentException
+		 * 		if {@code dwellMs} is less than zero
+		 */
+		public Builder addStep(final String key, final int durationMs, final int dwellMs) {
+			checkNotNull(key, "key cannot be null.");
+
+			if (durationMs <= 0) {
+				throw new IllegalArgumentException("durationMs must be greater than zero.");
+			}
+
+			if (dwellMs < 0) {
+				throw new IllegalArgumentException("dwellMs cannot be less than zero.");
+			}
+
+			steps.add(new Step(key, durationMs, dwellMs));
+
+			return this;
+		}
+
+		/**
+		 * Creates a sequence containing the steps added so far.
+		 *
+		 * @return the sequence, not null
+		 * @throws IllegalStateException
+		 * 		if no steps have been added
+		 */
+		public ActivationSequence build() {
+			if (steps.isEmpty()) {
+				throw new IllegalStateException("A sequence must contain at least one step.");
+			}
+
+			return new ActivationSequence(steps);
+		}
+	}
+}
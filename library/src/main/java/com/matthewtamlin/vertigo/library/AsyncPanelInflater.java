@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Inflates layouts on a shared background thread, in the style of AsyncLayoutInflater. Requests
+ * with higher priorities are inflated first, and requests with equal priorities are inflated in
+ * the order they were made. Results are always delivered on the main thread. Layouts which cannot
+ * be inflated off the main thread (for example because a view creates a Handler) are inflated on
+ * the main thread instead.
+ */
+final class AsyncPanelInflater {
+	/**
+	 * The priority given to requests which something is waiting for.
+	 */
+	static final int URGENT_PRIORITY = Integer.MAX_VALUE;
+
+	/**
+	 * Supplies the order of requests with equal priorities.
+	 */
+	private static final AtomicLong nextSequenceNumber = new AtomicLong(0);
+
+	/**
+	 * Delivers results on the main thread.
+	 */
+	private static final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * Executes the requests one at a time on a single background thread, in priority order.
+	 */
+	private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0,
+			TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "Vertigo inflater");
+			thread.setPriority(Thread.MIN_PRIORITY);
+
+			return thread;
+		}
+	});
+
+	/**
+	 * Prevents instantiation of this static utility class.
+	 */
+	private AsyncPanelInflater() {}
+
+	/**
+	 * Inflates a layout on the background thread.
+	 *
+	 * @param context
+	 * 		the context to inflate the layout with, not null
+	 * @param layoutResId
+	 * 		the resource ID of the layout to inflate
+	 * @param parent
+	 * 		the view which will contain the layout, used only to generate layout params, not null
+	 * @param priority
+	 * 		the priority of the request, higher priorities are inflated first
+	 * @param callback
+	 * 		the callback to deliver the result to on the main thread, not null
+	 * @return the request, not null
+	 */
+	static Request inflate(final Context context, final int layoutResId, final ViewGroup parent,
+			final int priority, final Callback callback) {
+		checkNotNull(context, "context cannot be null.");
+		checkNotNull(parent, "parent cannot be null.");
+		checkNotNull(callback, "callback cannot be null.");
+
+		final Request request = new Request(new BasicInflater(context), layoutResId, parent,
+				priority, callback);
+		executor.execute(request);
+
+		return request;
+	}
+
+	/**
+	 * Moves a request to the front of the queue, so that it is inflated next. Has no effect if the
+	 * request has already started.
+	 *
+	 * @param request
+	 * 		the request to prioritise, not null
+	 */
+	static void prioritise(final Request request) {
+		checkNotNull(request, "request cannot be null.");
+
+		if (executor.getQueue().remove(request)) {
+			request.priority = URGENT_PRIORITY;
+			executor.execute(request);
+		}
+	}
+
+	/**
+	 * Cancels a request. The request is removed from the queue, so that the executor no longer
+	 * retains it or the objects it refers to. If the request has already started, its result is
+	 * discarded instead of being delivered.
+	 *
+	 * @param request
+	 * 		the request to cancel, not null
+	 */
+	static void cancel(final Request request) {
+		checkNotNull(request, "request cannot be null.");
+
+		request.cancelled = true;
+		executor.getQueue().remove(request);
+	}
+
+	/**
+	 * Receives the results of inflation requests.
+	 */
+	interface Callback {
+		/**
+		 * Called on the main thread when a layout has been inflated.
+		 *
+		 * @param request
+		 * 		the request which was inflated, not null
+		 * @param view
+		 * 		the root of the inflated layout, not null
+		 */
+		void onInflationFinished(Request request, View view);
+	}
+
+	/**
+	 * A single request to inflate a layout.
+	 */
+	static final class Request implements Runnable, Comparable<Request> {
+		/**
+		 * Inflates the layout on the background thread.
+		 */
+		private final LayoutInflater inflater;
+
+		/**
+		 * The resource ID of the layout to inflate.
+		 */
+		private final int layoutResId;
+
+		/**
+		 * The view which will contain the layout.
+		 */
+		private final ViewGroup parent;
+
+		/**
+		 * The callback to deliver the result to.
+		 */
+		private final Callback callback;
+
+		/**
+		 * The position of this request among requests with the same priority.
+		 */
+		private final long sequenceNumber = nextSequenceNumber.getAndIncrement();
+
+		/**
+		 * The priority of this request. Only changed while the request is not queued.
+		 */
+		private volatile int priority;
+
+		/**
+		 * Whether or not this request has been cancelled.
+		 */
+		private volatile boolean cancelled = false;
+
+		/**
+		 * Constructs a new Request.
+		 *
+		 * @param inflater
+		 * 		inflates the layout, not null
+		 * @param layoutResId
+		 * 		the resource ID of the layout to inflate
+		 * @param parent
+		 * 		the view which will contain the layout, not null
+		 * @param priority
+		 * 		the priority of the request
+		 * @param callback
+		 * 		the callback to deliver the result to, not null
+		 */
+		private Request(final LayoutInflater inflater, final int layoutResId,
+				final ViewGroup parent, final int priority, final Callback callback) {
+			this.inflater = inflater;
+			this.layoutResId = layoutResId;
+			this.parent = parent;
+			this.priority = priority;
+			this.callback = callback;
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) {
+				return;
+			}
+
+			View view;
+
+			try {
+				view = inflater.inflate(layoutResId, parent, false);
+			} catch (final RuntimeException e) {
+				// Retry on the main thread, where views which need a Looper can be created
+				view = null;
+			}
+
+			if (cancelled) {
+				return;
+			}
+
+			final View inflatedView = view;
+
+			mainThreadHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					if (cancelled) {
+						return;
+					}
+
+					// Use the context's inflater, so that the activity's factories apply
+					final View result = inflatedView != null ? inflatedView : LayoutInflater
+							.from(parent.getContext()).inflate(layoutResId, parent, false);
+
+					callback.onInflationFinished(Request.this, result);
+				}
+			});
+		}
+
+		@Override
+		public int compareTo(final Request other) {
+			if (priority != other.priority) {
+				return priority > other.priority ? -1 : 1;
+			} else if (sequenceNumber != other.sequenceNumber) {
+				return sequenceNumber < other.sequenceNumber ? -1 : 1;
+			} else {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * A LayoutInflater without any factories, since the factories installed by activities are not
+	 * safe to use from other threads.
+	 */
+	private static final class BasicInflater extends LayoutInflater {
+		/**
+		 * The packages to search for views which are declared without a package.
+		 */
+		private static final String[] CLASS_PREFIXES = {"android.widget.", "android.webkit.",
+				"android.app."};
+
+		/**
+		 * Constructs a new BasicInflater.
+		 *
+		 * @param context
+		 * 		the context to inflate layouts with, not null
+		 */
+		private BasicInflater(final Context context) {
+			super(context);
+		}
+
+		@Override
+		public LayoutInflater cloneInContext(final Context newContext) {
+			return new BasicInflater(newContext);
+		}
+
+		@Override
+		protected View onCreateView(final String name, final AttributeSet attrs) throws
+				ClassNotFoundException {
+			for (final String prefix : CLASS_PREFIXES) {
+				try {
+					final View view = createView(name, prefix, attrs);
+
+					if (view != null) {
+						return view;
+					}
+				} catch (final ClassNotFoundException e) {
+					// Try the next prefix
+				}
+			}
+
+			return super.onCreateView(name, attrs);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.os.SystemClock;
+
+import com.matthewtamlin.java_utilities.checkers.IntChecker;
+
+import java.io.PrintWriter;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A fixed size ring buffer of coordinator events. All storage is allocated up front, so recording
+ * an event never allocates. When the buffer is full the oldest event is overwritten. The events
+ * can be dumped on demand, for example from {@link android.app.Activity#dump(String,
+ * java.io.FileDescriptor, PrintWriter, String[])} so that they are included in bug reports. This
+ * class is not thread safe.
+ */
+final class CoordinatorEventLog {
+	/**
+	 * The operations which can be recorded.
+	 */
+	enum Operation {
+		/**
+		 * A view was registered.
+		 */
+		REGISTER,
+
+		/**
+		 * A view was unregistered.
+		 */
+		UNREGISTER,
+
+		/**
+		 * A view was requested to become active.
+		 */
+		MAKE_VIEW_ACTIVE,
+
+		/**
+		 * A sequence of activations was requested.
+		 */
+		PLAY_SEQUENCE,
+
+		/**
+		 * A transition finished.
+		 */
+		TRANSITION_FINISHED,
+
+		/**
+		 * The state of the coordinator was set directly.
+		 */
+		BIND_STATE
+	}
+
+	/**
+	 * The operation of each event.
+	 */
+	private final Operation[] operations;
+
+	/**
+	 * The key of each event. Only references to the keys are stored, so no copies are made.
+	 */
+	private final String[] keys;
+
+	/**
+	 * The outcome of each event, null elements indicate that the operation was accepted.
+	 */
+	private final TransitionHandle.Outcome[] outcomes;
+
+	/**
+	 * The time of each event, measured in milliseconds since boot.
+	 */
+	private final long[] timestampsMs;
+
+	/**
+	 * The index to write the next event to.
+	 */
+	private int nextIndex = 0;
+
+	/**
+	 * The total number of events recorded, including those which have been overwritten.
+	 */
+	private long totalEvents = 0;
+
+	/**
+	 * Constructs a new CoordinatorEventLog.
+	 *
+	 * @param capacity
+	 * 		the maximum number of events to retain, greater than zero
+	 */
+	CoordinatorEventLog(final int capacity) {
+		IntChecker.checkGreaterThan(capacity, 0, "capacity must be greater than zero.");
+
+		operations = new Operation[capacity];
+		keys = new String[capacity];
+		outcomes = new TransitionHandle.Outcome[capacity];
+		timestampsMs = new long[capacity];
+	}
+
+	/**
+	 * Records an event, overwriting the oldest event if the buffer is full.
+	 *
+	 * @param operation
+	 * 		the operation, not null
+	 * @param key
+	 * 		the key the operation applied to, may be null
+	 * @param outcome
+	 * 		the outcome of the operation, null if the operation was accepted
+	 */
+	void record(final Operation operation, final String key,
+			final TransitionHandle.Outcome outcome) {
+		operations[nextIndex] = operation;
+		keys[nextIndex] = key;
+		outcomes[nextIndex] = outcome;
+		timestampsMs[nextIndex] = SystemClock.uptimeMillis();
+
+		nextIndex = (nextIndex + 1) % operations.length;
+		totalEvents++;
+	}
+
+	/**
+	 * Writes the retained events to the supplied writer, from oldest to newest.
+	 *
+	 * @param prefix
+	 * 		the prefix to write before each line, not null
+	 * @param writer
+	 * 		the writer to write to, not null
+	 */
+	void dump(final String prefix, final PrintWriter writer) {
+		checkNotNull(prefix, "prefix cannot be null.");
+		checkNotNull(writer, "writer cannot be null.");
+
+		final int retainedEvents = (int) Math.min(totalEvents, operations.length);
+		final int firstIndex = (nextIndex - retainedEvents + operations.length) %
+				operations.length;
+
+		writer.print(prefix);
+		writer.print("Vertigo events (");
+		writer.print(retainedEvents);
+		writer.print(" of ");
+		writer.print(totalEvents);
+		writer.println("):");
+
+		for (int i = 0; i < retainedEvents; i++) {
+			final int index = (firstIndex + i) % operations.length;
+
+			writer.print(prefix);
+			writer.print("  ");
+			writer.print(timestampsMs[index]);
+			writer.print(' ');
+			writer.print(operations[index]);
+			writer.print(" key=");
+			writer.print(keys[index]);
+			writer.print(" outcome=");
+			writer.println(outcomes[index] == null ? "ACCEPTED" : outcomes[index]);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An immutable record of the state of a coordinator at a single point in time. Snapshots are safe
+ * to share between threads.
+ */
+public final class CoordinatorSnapshot {
+	/**
+	 * A snapshot of a coordinator with no registered views.
+	 */
+	static final CoordinatorSnapshot EMPTY = new CoordinatorSnapshot(null,
+			Collections.<String>emptySet(), Collections.<String>emptySet(), false);
+
+	/**
+	 * The key of the active view, null if there is no active view.
+	 */
+	private final String activeKey;
+
+	/**
+	 * The keys of the views in the up position.
+	 */
+	private final Set<String> upKeys;
+
+	/**
+	 * The keys of the views in the down position.
+	 */
+	private final Set<String> downKeys;
+
+	/**
+	 * Whether or not a transition was in progress when the snapshot was taken.
+	 */
+	private final boolean transitionInProgress;
+
+	/**
+	 * Constructs a new CoordinatorSnapshot. The supplied sets are copied.
+	 *
+	 * @param activeKey
+	 * 		the key of the active view, may be null
+	 * @param upKeys
+	 * 		the keys of the views in the up position, not null
+	 * @param downKeys
+	 * 		the keys of the views in the down position, not null
+	 * @param transitionInProgress
+	 * 		whether or not a transition was in progress when the snapshot was taken
+	 * @throws IllegalArgumentException
+	 * 		if {@code upKeys} or {@code downKeys} is null
+	 */
+	CoordinatorSnapshot(final String activeKey, final Set<String> upKeys,
+			final Set<String> downKeys, final boolean transitionInProgress) {
+		checkNotNull(upKeys, "upKeys cannot be null.");
+		checkNotNull(downKeys, "downKeys cannot be null.");
+
+		this.activeKey = activeKey;
+		this.upKeys = Collections.unmodifiableSet(new HashSet<>(upKeys));
+		this.downKeys = Collections.unmodifiableSet(new HashSet<>(downKeys));
+		this.transitionInProgress = transitionInProgress;
+	}
+
+	/**
+	 * @return the key of the active view, null if there was no active view
+	 */
+	public String getActiveKey() {
+		return activeKey;
+	}
+
+	/**
+	 * @return the keys of the views in the up position, unmodifiable, not null
+	 */
+	public Set<String> getUpKeys() {
+		return upKeys;
+	}
+
+	/**
+	 * @return the keys of the views in the down position, unmodifiable, not null
+	 */
+	public Set<String> getDownKeys() {
+		return downKeys;
+	}
+
+	/**
+	 * @return true if a transition was in progress when the snapshot was taken, false otherwise
+	 */
+	public boolean isTransitionInProgress() {
+		return transitionInProgress;
+	}
+
+	@Override
+	public String toString() {
+		return "CoordinatorSnapshot{activeKey=" + activeKey + ", upKeys=" + upKeys +
+				", downKeys=" + downKeys + ", transitionInProgress=" + transitionInProgress + "}";
+	}
+}
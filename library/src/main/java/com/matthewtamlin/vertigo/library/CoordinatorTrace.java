@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emits system trace sections and counters for the coordinator, so that its work can be
+ * identified in systrace and Perfetto captures. Sections are only emitted on API 18 and above, and
+ * the platform discards them cheaply when tracing is off. Counters use the public counter methods
+ * from API 29, and fall back to the equivalent hidden methods on older versions. Neither set of
+ * methods is available in the compile SDK, so they are looked up once by reflection, and counters
+ * are only emitted while the application is being traced.
+ */
+final class CoordinatorTrace {
+	/**
+	 * The section emitted when a view is registered.
+	 */
+	static final String SECTION_REGISTER = "Vertigo:registerViewForCoordination";
+
+	/**
+	 * The section emitted while a transition is planned and started.
+	 */
+	static final String SECTION_PLAN = "Vertigo:makeViewActive";
+
+	/**
+	 * The section emitted for each animation frame of a transition.
+	 */
+	static final String SECTION_FRAME = "Vertigo:frame";
+
+	/**
+	 * The section emitted when a view is brought to the front of the drawing order.
+	 */
+	static final String SECTION_BRING_TO_FRONT = "Vertigo:bringToFront";
+
+	/**
+	 * The section emitted while state changes are dispatched to the views.
+	 */
+	static final String SECTION_STATE_CHANGED = "Vertigo:onStateChanged";
+
+	/**
+	 * The name of the counter which records the number of running slides.
+	 */
+	private static final String COUNTER_RUNNING_SLIDES = "Vertigo:runningSlides";
+
+	/**
+	 * The tag used by the platform for application trace events. Mirrors the hidden
+	 * Trace.TRACE_TAG_APP constant.
+	 */
+	private static final long TRACE_TAG_APP = 1L << 12;
+
+	/**
+	 * The API level which added the public Trace.isEnabled() and Trace.setCounter(String, long)
+	 * methods. Mirrors Build.VERSION_CODES.Q, which is newer than the compile SDK.
+	 */
+	private static final int API_PUBLIC_COUNTERS = 29;
+
+	/**
+	 * The number of slides currently running across all coordinators in the process.
+	 */
+	private static final AtomicInteger runningSlides = new AtomicInteger(0);
+
+	/**
+	 * The method which checks whether or not the application is being traced, null if it is
+	 * unavailable. Trace.isEnabled() from API 29, and the hidden Trace.isTagEnabled(long) below.
+	 */
+	private static Method isEnabledMethod;
+
+	/**
+	 * The method which emits a counter value, null if it is unavailable. Trace.setCounter(String,
+	 * long) from API 29, and the hidden Trace.traceCounter(long, String, int) below.
+	 */
+	private static Method setCounterMethod;
+
+	/**
+	 * The arguments passed to {@link #isEnabledMethod}. Allocated once, so that checking does not
+	 * box the arguments on every call.
+	 */
+	private static Object[] isEnabledArgs;
+
+	/**
+	 * The arguments passed to {@link #setCounterMethod}. Allocated once, and only the value is
+	 * replaced on each call. Small values are boxed using the cached instances of the boxed
+	 * types, so no objects are allocated for them.
+	 */
+	private static Object[] setCounterArgs;
+
+	/**
+	 * The index of the counter value in {@link #setCounterArgs}.
+	 */
+	private static int counterValueIndex;
+
+	/**
+	 * Whether or not the methods have been looked up.
+	 */
+	private static boolean methodsResolved = false;
+
+	/**
+	 * Prevents instantiation of this static utility class.
+	 */
+	private CoordinatorTrace() {}
+
+	/**
+	 * Begins a trace section on the current thread. Every call must be matched by a call to
+	 * {@link #endSection()} on the same thread.
+	 *
+	 * @param sectionName
+	 * 		the name of the section, not null
+	 */
+	static void beginSection(final String sectionName) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.beginSection(sectionName);
+		}
+	}
+
+	/**
+	 * Ends the most recently begun trace section on the current thread.
+	 */
+	static void endSection() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.endSection();
+		}
+	}
+
+	/**
+	 * Records that a slide has started, and updates the running slides counter.
+	 */
+	static void onSlideStarted() {
+		setRunningSlidesCounter(runningSlides.incrementAndGet());
+	}
+
+	/**
+	 * Records that a slide has ended, and updates the running slides counter.
+	 */
+	static void onSlideEnded() {
+		setRunningSlidesCounter(runningSlides.decrementAndGet());
+	}
+
+	/**
+	 * Emits the running slides counter if the application is being traced. The counter is only
+	 * updated from the main thread, so the preallocated arguments are never shared between
+	 * threads.
+	 *
+	 * @param value
+	 * 		the current number of running slides
+	 */
+	private static void setRunningSlidesCounter(final int value) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			return;
+		}
+
+		resolveMethods();
+
+		if (isEnabledMethod == null || setCounterMethod == null) {
+			return;
+		}
+
+		try {
+			if ((Boolean) isEnabledMethod.invoke(null, isEnabledArgs)) {
+				setCounterArgs[counterValueIndex] = Build.VERSION.SDK_INT >= API_PUBLIC_COUNTERS ?
+						(Object) Long.valueOf(value) : (Object) Integer.valueOf(value);
+				setCounterMethod.invoke(null, setCounterArgs);
+			}
+		} catch (final Exception e) {
+			// Tracing is best effort, so stop trying rather than failing the transition
+			setCounterMethod = null;
+		}
+	}
+
+	/**
+	 * Looks up the trace methods and allocates their arguments. The public methods are used from
+	 * API 29, and the hidden methods are only used on older versions where no public alternative
+	 * exists. Has no effect after the first call.
+	 */
+	private static synchronized void resolveMethods() {
+		if (methodsResolved) {
+			return;
+		}
+
+		methodsResolved = true;
+
+		try {
+			if (Build.VERSION.SDK_INT >= API_PUBLIC_COUNTERS) {
+				isEnabledMethod = Trace.class.getMethod("isEnabled");
+				setCounterMethod = Trace.class.getMethod("setCounter", String.class, long.class);
+				isEnabledArgs = new Object[0];
+				setCounterArgs = new Object[] {COUNTER_RUNNING_SLIDES, null};
+				counterValueIndex = 1;
+			} else {
+				isEnabledMethod = Trace.class.getMethod("isTagEnabled", long.class);
+				setCounterMethod = Trace.class.getMethod("traceCounter", long.class, String.class,
+						int.class);
+				isEnabledArgs = new Object[] {TRACE_TAG_APP};
+				setCounterArgs = new Object[] {TRACE_TAG_APP, COUNTER_RUNNING_SLIDES, null};
+				counterValueIndex = 2;
+			}
+		} catch (final Exception e) {
+			isEnabledMethod = null;
+			setCounterMethod = null;
+		}
+	}
+}
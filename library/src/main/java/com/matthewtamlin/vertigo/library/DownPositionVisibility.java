@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.view.View;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Hides views while a TransitionSpec holds them in the down position, and shows them again when
+ * they leave it. Only views which were hidden by this object are ever shown again, so visibility
+ * chosen by the app is never overridden. Views are not retained once they are garbage collected.
+ */
+final class DownPositionVisibility {
+	/**
+	 * The views which were hidden by this object and have not yet been shown again.
+	 */
+	private final Set<View> hiddenViews = Collections.newSetFromMap(
+			new WeakHashMap<View, Boolean>());
+
+	/**
+	 * Hides the supplied view if it has reached the down position and is visible, or shows it if it
+	 * has left the down position and was hidden by this object.
+	 *
+	 * @param view
+	 * 		the view to update, not null
+	 * @param downFraction
+	 * 		how far the view is through the transition, where 1 is the down position
+	 */
+	void update(final View view, final float downFraction) {
+		if (downFraction == 1) {
+			if (view.getVisibility() == View.VISIBLE) {
+				view.setVisibility(View.INVISIBLE);
+				hiddenViews.add(view);
+			}
+		} else {
+			restore(view);
+		}
+	}
+
+	/**
+	 * Shows the supplied view if it was hidden by this object and is still invisible.
+	 *
+	 * @param view
+	 * 		the view to restore, not null
+	 */
+	void restore(final View view) {
+		if (hiddenViews.remove(view) && view.getVisibility() == View.INVISIBLE) {
+			view.setVisibility(View.VISIBLE);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.view.View;
+
+/**
+ * A TransitionSpec which cross-fades views in place. In the down position a view is fully
+ * transparent and invisible, so it cannot receive touch events. Views which declare that they
+ * have no overlapping rendering are faded without a hardware layer, since the framework can
+ * apply their alpha directly while drawing. Views which the app has hidden are left hidden.
+ */
+public class FadeTransitionSpec implements TransitionSpec {
+	/**
+	 * Hides views in the down position without overriding the visibility chosen by the app.
+	 */
+	private final DownPositionVisibility visibility = new DownPositionVisibility();
+
+	@Override
+	public void applyTransition(final View view, final float downFraction) {
+		view.setAlpha(1 - downFraction);
+		visibility.update(view, downFraction);
+	}
+
+	@Override
+	public void clearTransition(final View view) {
+		view.setAlpha(1);
+		visibility.restore(view);
+	}
+
+	@Override
+	public boolean shouldUseHardwareLayer(final View view) {
+		return view.hasOverlappingRendering();
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.view.View;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static com.matthewtamlin.vertigo.library.VertigoView.State.INACTIVE;
+
+/**
+ * A VertigoView which tracks the state of an arbitrary View on its behalf, so that views which do
+ * not implement VertigoView can be coordinated without being wrapped in another layout. Instances
+ * are created by coordinators when plain views are registered, and are returned by {@link
+ * VertigoCoordinator#getView(String)} for those views.
+ */
+public final class PlainVertigoView implements VertigoView {
+	/**
+	 * The view which is coordinated.
+	 */
+	private final View view;
+
+	/**
+	 * The listener to notify when the state changes, may be null.
+	 */
+	private final StateListener listener;
+
+	/**
+	 * The current Vertigo state of the view.
+	 */
+	private State state = INACTIVE;
+
+	/**
+	 * Constructs a new PlainVertigoView. The initial state is inactive.
+	 *
+	 * @param view
+	 * 		the view to coordinate, not null
+	 * @param listener
+	 * 		the listener to notify when the state changes, may be null
+	 */
+	PlainVertigoView(final View view, final StateListener listener) {
+		this.view = checkNotNull(view, "view cannot be null.");
+		this.listener = listener;
+	}
+
+	/**
+	 * @return the view which is coordinated, not null
+	 */
+	public View getView() {
+		return view;
+	}
+
+	@Override
+	public State getCurrentState() {
+		return state;
+	}
+
+	@Override
+	public void onStateChanged(final State state) {
+		this.state = checkNotNull(state, "state cannot be null.");
+
+		if (listener != null) {
+			listener.onStateChanged(view, state);
+		}
+	}
+
+	/**
+	 * Receives callbacks when the state of a plain view changes.
+	 */
+	public interface StateListener {
+		/**
+		 * Called to declare the state of a plain view.
+		 *
+		 * @param view
+		 * 		the view which changed state, not null
+		 * @param state
+		 * 		the new state of the view, not null
+		 */
+		public void onStateChanged(View view, State state);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.view.View;
+
+/**
+ * A TransitionSpec which shrinks and fades views about their centre. In the down position a view
+ * is scaled to the minimum scale, fully transparent and invisible. Views which the app has hidden
+ * are left hidden.
+ */
+public class ScaleTransitionSpec implements TransitionSpec {
+	/**
+	 * The scale of views in the down position.
+	 */
+	private final float minimumScale;
+
+	/**
+	 * Records which views this spec hid, so that only those views are shown again.
+	 */
+	private final DownPositionVisibility visibility = new DownPositionVisibility();
+
+	/**
+	 * Constructs a new ScaleTransitionSpec which shrinks views to 80% of their size in the down
+	 * position.
+	 */
+	public ScaleTransitionSpec() {
+		this(0.8f);
+	}
+
+	/**
+	 * Constructs a new ScaleTransitionSpec.
+	 *
+	 * @param minimumScale
+	 * 		the scale of views in the down position, not less than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code minimumScale} is less than zero
+	 */
+	public ScaleTransitionSpec(final float minimumScale) {
+		if (minimumScale < 0) {
+			throw new IllegalArgumentException("minimumScale cannot be less than zero.");
+		}
+
+		this.minimumScale = minimumScale;
+	}
+
+	@Override
+	public void applyTransition(final View view, final float downFraction) {
+		final float scale = 1 - ((1 - minimumScale) * downFraction);
+
+		view.setScaleX(scale);
+		view.setScaleY(scale);
+		view.setAlpha(1 - downFraction);
+		visibility.update(view, downFraction);
+	}
+
+	@Override
+	public void clearTransition(final View view) {
+		view.setScaleX(1);
+		view.setScaleY(1);
+		view.setAlpha(1);
+		visibility.restore(view);
+	}
+
+	@Override
+	public boolean shouldUseHardwareLayer(final View view) {
+		return true;
+	}
+}
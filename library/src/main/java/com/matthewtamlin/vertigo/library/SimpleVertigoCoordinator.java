@@ -20,33 +20,137 @@ import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.support.annotation.LayoutRes;
 import android.support.annotation.RequiresApi;
+import android.support.v4.view.GravityCompat;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.util.LruCache;
+import android.view.Gravity;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AnimationUtils;
+import android.view.animation.LinearInterpolator;
 import android.widget.FrameLayout;
 
 import com.matthewtamlin.android_utilities.library.testing.Tested;
 import com.matthewtamlin.java_utilities.checkers.IntChecker;
 
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import timber.log.Timber;
-
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static com.matthewtamlin.vertigo.library.CoordinatorEventLog.Operation.BIND_STATE;
+import static com.matthewtamlin.vertigo.library.CoordinatorEventLog.Operation.MAKE_VIEW_ACTIVE;
+import static com.matthewtamlin.vertigo.library.CoordinatorEventLog.Operation.PLAY_SEQUENCE;
+import static com.matthewtamlin.vertigo.library.CoordinatorEventLog.Operation.REGISTER;
+import static com.matthewtamlin.vertigo.library.CoordinatorEventLog.Operation.TRANSITION_FINISHED;
+import static com.matthewtamlin.vertigo.library.CoordinatorEventLog.Operation.UNREGISTER;
+import static com.matthewtamlin.vertigo.library.CoordinatorTrace.SECTION_BRING_TO_FRONT;
+import static com.matthewtamlin.vertigo.library.CoordinatorTrace.SECTION_FRAME;
+import static com.matthewtamlin.vertigo.library.CoordinatorTrace.SECTION_PLAN;
+import static com.matthewtamlin.vertigo.library.CoordinatorTrace.SECTION_REGISTER;
+import static com.matthewtamlin.vertigo.library.CoordinatorTrace.SECTION_STATE_CHANGED;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.CANCELLED;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.COMPLETED;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.DROPPED;
+import static com.matthewtamlin.vertigo.library.TransitionHandle.Outcome.SUPERSEDED;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.FULL;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.INSTANT;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.LAYERED;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.SHORTENED;
 import static com.matthewtamlin.vertigo.library.VertigoView.State.ACTIVE;
 import static com.matthewtamlin.vertigo.library.VertigoView.State.INACTIVE;
 
 /**
  * An implementation of the VertigoCoordinator interface based on a FrameLayout.
+ * <p>
+ * SimpleVertigoCoordinators can be nested inside the views of other SimpleVertigoCoordinators.
+ * Views in nested coordinators can be made active using hierarchical keys, where the key of each
+ * level is separated by {@link #KEY_SEPARATOR}. For example if the view registered as "outer"
+ * contains a coordinator with a view registered as "inner", then "outer/inner" refers to the inner
+ * view. Making the inner view active moves the views of both coordinators in a single transition
+ * driven by one animation clock. Nested views inside panels which are down when the transition
+ * starts are changed instantly, since only the outer movement can be seen.
+ * <p>
+ * Registered children are unregistered automatically when they are removed from the coordinator,
+ * so removed panels and any transitions referring to them are never kept alive. See {@link
+ * #setWeakRegistrationEnabled(boolean)} for retaining the registrations of removed children.
+ * <p>
+ * Transitions are never animated while the coordinator cannot be seen. If the coordinator is
+ * hidden, detached or its window is hidden during a transition, the transition jumps to its end
+ * state and completes normally. Transitions requested while the coordinator cannot be seen are
+ * applied instantly.
  */
 @Tested(testMethod = "manual, automated", requiresInstrumentation = true)
 public class SimpleVertigoCoordinator extends FrameLayout implements VertigoCoordinator {
+	/**
+	 * Separates the keys of each level in a hierarchical key.
+	 */
+	public static final String KEY_SEPARATOR = "/";
+
+	/**
+	 * The gravity used to lay out children which do not specify a gravity, matching FrameLayout.
+	 */
+	private static final int DEFAULT_CHILD_GRAVITY = Gravity.TOP | GravityCompat.START;
+
+	/**
+	 * The number of events retained by the event log.
+	 */
+	private static final int EVENT_LOG_CAPACITY = 64;
+
+	/**
+	 * The maximum number of bitmaps which are kept for reuse after they leave the snapshot cache.
+	 */
+	private static final int MAX_REUSABLE_SNAPSHOT_BITMAPS = 2;
+
+	/**
+	 * The number of bytes used by each pixel of a snapshot.
+	 */
+	private static final int SNAPSHOT_BYTES_PER_PIXEL = 4;
+
+	/**
+	 * The easing applied to transitions when no other easing has been set. Shared by all
+	 * coordinators so that the lookup table is only computed once.
+	 */
+	private static final TransitionEasing DEFAULT_EASING = new TransitionEasing(new
+			AccelerateDecelerateInterpolator());
+
+	/**
+	 * Records the operations of this coordinator for diagnostics.
+	 */
+	private final CoordinatorEventLog eventLog = new CoordinatorEventLog(EVENT_LOG_CAPACITY);
+
 	/**
 	 * All views which are coordinated by this SlidingCoordinator.
 	 */
@@ -63,11 +167,393 @@ public class SimpleVertigoCoordinator extends FrameLayout implements VertigoCoor
 	 */
 	private final AtomicInteger currentAnimationCount = new AtomicInteger(0);
 
+	/**
+	 * The runner which is currently playing transitions in this coordinator, null if there is
+	 * none. This is the runner of an outer coordinator if the transitions of this coordinator are
+	 * part of a combined transition, so that ending the runner from here ends the whole transition.
+	 */
+	private TransitionRunner currentRunner = null;
+
 	/**
 	 * The length of time to use for each slide up/down animation.
 	 */
 	private int animationDurationMs = 300;
 
+	/**
+	 * Defines how views are moved between the up and down positions.
+	 */
+	private TransitionSpec transitionSpec = new SlideTransitionSpec();
+
+	/**
+	 * The easing applied to each transition.
+	 */
+	private TransitionEasing transitionEasing = DEFAULT_EASING;
+
+	/**
+	 * Chooses the quality of transitions based on observed frame drops.
+	 */
+	private final TransitionQualityController qualityController = new
+			TransitionQualityController();
+
+	/**
+	 * Whether or not the quality of transitions is adjusted based on observed frame drops.
+	 */
+	private boolean adaptiveQualityEnabled = false;
+
+	/**
+	 * The maximum number of times per second that views are updated during transitions. Zero
+	 * indicates that updates are not limited.
+	 */
+	private int maxTransitionFrameRate = 0;
+
+	/**
+	 * The views which have been brought to the front of the drawing order, ordered from back to
+	 * front. Children which are not in this list are drawn behind these views in child order.
+	 */
+	private final List<View> raisedViews = new ArrayList<>();
+
+	/**
+	 * Maps each drawing position to the index of the child drawn at that position. The array is
+	 * rebuilt lazily whenever the children or the raised views change.
+	 */
+	private int[] drawingOrder = new int[0];
+
+	/**
+	 * Whether or not the drawing order must be rebuilt before it is next used.
+	 */
+	private boolean drawingOrderInvalid = true;
+
+	/**
+	 * For each drawing position, the y coordinate below which the child is hidden by opaque views
+	 * drawn in front of it. Only valid for the duration of a draw pass while clipping is active.
+	 */
+	private int[] visibleBottoms = new int[0];
+
+	/**
+	 * The child at each drawing position, recorded alongside {@link #visibleBottoms}. Only valid
+	 * for the duration of a draw pass while clipping is active.
+	 */
+	private View[] clippedChildren = new View[0];
+
+	/**
+	 * The drawing position of the next child expected to be drawn. Children are drawn in drawing
+	 * order, so looking them up from here keeps the cost of a draw pass linear.
+	 */
+	private int nextClippedChild = 0;
+
+	/**
+	 * Whether or not children are clipped to their visible bands in the current draw pass.
+	 */
+	private boolean clippingActive = false;
+
+	/**
+	 * The listeners to notify whenever the active view changes. The array is never modified, instead
+	 * it is replaced whenever a listener is added or removed. This allows dispatch to iterate over
+	 * the listeners without copying, even if the listeners change during dispatch.
+	 */
+	private volatile ActiveViewChangedListener[] registeredListeners = new
+			ActiveViewChangedListener[0];
+
+	/**
+	 * The most recently published snapshot of the coordinator state. Volatile so that it can be
+	 * read from any thread.
+	 */
+	private volatile CoordinatorSnapshot snapshot = CoordinatorSnapshot.EMPTY;
+
+	/**
+	 * Commands submitted from any thread which are waiting to be executed on the main thread.
+	 */
+	private final ConcurrentLinkedQueue<Runnable> pendingCommands = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Whether or not a drain of the pending commands has been posted and has not finished yet.
+	 * Commands submitted while this is true are executed by that drain, so a burst of submissions
+	 * only ever posts one drain.
+	 */
+	private final AtomicBoolean commandDrainScheduled = new AtomicBoolean(false);
+
+	/**
+	 * Posts to the main thread. Unlike {@link View#post(Runnable)} this works from any thread, even
+	 * when the coordinator is not attached to a window.
+	 */
+	private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * Whether or not the system settings which affect animation are being observed. The cached
+	 * values below are only valid while this is true.
+	 */
+	private boolean observingSystemSettings = false;
+
+	/**
+	 * The cached global animator duration scale.
+	 */
+	private float animatorDurationScale = 1;
+
+	/**
+	 * Whether or not the device was in power save mode at the last change.
+	 */
+	private boolean powerSaveMode = false;
+
+	/**
+	 * Updates the cached animator duration scale when the user changes it.
+	 */
+	private final ContentObserver animatorDurationScaleObserver = new ContentObserver(
+			mainThreadHandler) {
+		@Override
+		public void onChange(final boolean selfChange) {
+			animatorDurationScale = readAnimatorDurationScale();
+		}
+	};
+
+	/**
+	 * Updates the cached power save mode when the device enters or leaves power save mode.
+	 */
+	private final BroadcastReceiver powerSaveModeReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(final Context context, final Intent intent) {
+			powerSaveMode = readPowerSaveMode();
+		}
+	};
+
+	/**
+	 * Executes all pending commands on the main thread.
+	 */
+	private final Runnable commandDrainer = new Runnable() {
+		@Override
+		public void run() {
+			Runnable command;
+
+			try {
+				while ((command = pendingCommands.poll()) != null) {
+					command.run();
+				}
+			} finally {
+				commandDrainScheduled.set(false);
+
+				// Catch commands submitted after the last poll or stranded by a throw
+				if (!pendingCommands.isEmpty() &&
+						commandDrainScheduled.compareAndSet(false, true)) {
+					mainThreadHandler.post(this);
+				}
+			}
+		}
+	};
+
+	/**
+	 * The position of each registered view, as a fraction of the transition between the up
+	 * position (0) and the down position (1). Positions are stored independently of the size of
+	 * the coordinator, and are reapplied using the transition spec on every layout pass. Each
+	 * position is held in a single element array so that it can be updated on every frame without
+	 * allocating.
+	 */
+	private final Map<View, float[]> downFractions = new HashMap<>();
+
+	/**
+	 * The width measure spec of the most recent measure pass of the coordinator.
+	 */
+	private int lastWidthMeasureSpec;
+
+	/**
+	 * The height measure spec of the most recent measure pass of the coordinator.
+	 */
+	private int lastHeightMeasureSpec;
+
+	/**
+	 * Whether or not the coordinator has been measured at least once.
+	 */
+	private boolean measuredOnce = false;
+
+	/**
+	 * Whether or not the children parked in the down position were measured by a measure pass
+	 * which has not yet been followed by a layout pass.
+	 */
+	private boolean parkedChildrenMeasured = false;
+
+	/**
+	 * The children which need to be measured again once the size of the coordinator is known.
+	 * Reused between measure passes to avoid allocation.
+	 */
+	private final List<View> matchParentChildren = new ArrayList<>();
+
+	/**
+	 * Bitmap snapshots of views which have left the screen, keyed by the keys of the views. Null if
+	 * snapshot placeholders are disabled.
+	 */
+	private LruCache<String, Bitmap> snapshotCache = null;
+
+	/**
+	 * The maximum size of the snapshot cache, measured in bytes. Zero if snapshot placeholders are
+	 * disabled.
+	 */
+	private int snapshotCacheSizeBytes = 0;
+
+	/**
+	 * Bitmaps which have left the snapshot cache, kept so that later snapshots of the same size do
+	 * not need to allocate.
+	 */
+	private final List<Bitmap> reusableSnapshotBitmaps = new ArrayList<>();
+
+	/**
+	 * The registered views which have moved down and are waiting for their snapshots to be
+	 * captured.
+	 */
+	private final List<VertigoView> pendingSnapshots = new ArrayList<>();
+
+	/**
+	 * Whether or not {@link #captureSnapshotsIdleHandler} has been added to the message queue and
+	 * has not run yet.
+	 */
+	private boolean snapshotCaptureScheduled = false;
+
+	/**
+	 * Captures the pending snapshots once the main thread is idle and no transition is running, so
+	 * that capturing never delays a frame.
+	 */
+	private final MessageQueue.IdleHandler captureSnapshotsIdleHandler = new MessageQueue
+			.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			// The queue is also idle between the frames of a transition
+			if (currentRunner != null) {
+				return true;
+			}
+
+			snapshotCaptureScheduled = false;
+			capturePendingSnapshots();
+
+			return false;
+		}
+	};
+
+	/**
+	 * The snapshots which are currently drawn in place of views which are not ready to be drawn.
+	 */
+	private final Map<View, Bitmap> placeholders = new HashMap<>();
+
+	/**
+	 * The views which have been drawn underneath their placeholders since the last time ready
+	 * placeholders were released.
+	 */
+	private final Set<View> drawnUnderPlaceholders = new HashSet<>();
+
+	/**
+	 * Whether or not {@link #releasePlaceholdersRunnable} has been posted and has not run yet.
+	 */
+	private boolean placeholderReleaseScheduled = false;
+
+	/**
+	 * Releases the placeholders of the views which were drawn underneath them on the previous
+	 * frame.
+	 */
+	private final Runnable releasePlaceholdersRunnable = new Runnable() {
+		@Override
+		public void run() {
+			releaseReadyPlaceholders();
+		}
+	};
+
+	/**
+	 * Plain views which stand in for layouts being inflated in the background, keyed by the keys
+	 * the layouts will be registered with. Each stand-in is drawn using the cached snapshot for its
+	 * key, so that it can be made active without waiting for the inflation to finish.
+	 */
+	private final Map<String, View> inflationStandIns = new HashMap<>();
+
+	/**
+	 * Views which finished inflating while their stand-ins could not be replaced, keyed by the keys
+	 * they will be registered with. They replace the stand-ins once no transition is running.
+	 */
+	private final Map<String, View> inflatedViewsAwaitingSwap = new HashMap<>();
+
+	/**
+	 * The registered views which are currently hidden from accessibility services, mapped to the
+	 * accessibility importance they had before they were hidden.
+	 */
+	private final Map<View, Integer> hiddenFromAccessibility = new HashMap<>();
+
+	/**
+	 * Used to draw placeholders with the alpha of the views they replace.
+	 */
+	private final Paint placeholderPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+	/**
+	 * The layouts which are being inflated in the background, keyed by the keys they will be
+	 * registered with.
+	 */
+	private final Map<String, AsyncPanelInflater.Request> pendingInflations = new HashMap<>();
+
+	/**
+	 * The activation requests which are waiting for layouts to finish inflating, keyed by the keys
+	 * of the layouts.
+	 */
+	private final Map<String, List<WaitingActivation>> waitingActivations = new HashMap<>();
+
+	/**
+	 * Attaches and registers views once they have been inflated in the background.
+	 */
+	private final AsyncPanelInflater.Callback inflationCallback = new AsyncPanelInflater
+			.Callback() {
+		@Override
+		public void onInflationFinished(final AsyncPanelInflater.Request request,
+				final View view) {
+			onViewInflated(request, view);
+		}
+	};
+
+	/**
+	 * Whether or not transitions are driven by the shared {@link TransitionScheduler} instead of
+	 * their own animators.
+	 */
+	private boolean sharedSchedulerEnabled = false;
+
+	/**
+	 * Whether or not the registrations of removed children are retained weakly.
+	 */
+	private boolean weakRegistrationEnabled = false;
+
+	/**
+	 * The registrations of children which were removed while weak registration was enabled, keyed
+	 * by the keys the children were registered with.
+	 */
+	private final Map<String, RemovedRegistration> removedViews = new HashMap<>();
+
+	/**
+	 * The hierarchy change listener supplied by the user of this view, may be null.
+	 */
+	private OnHierarchyChangeListener externalHierarchyChangeListener;
+
+	/**
+	 * Keeps the drawing order and the registrations in sync with the children, and forwards all
+	 * events to the external hierarchy change listener.
+	 */
+	private final OnHierarchyChangeListener hierarchyChangeListener = new
+			OnHierarchyChangeListener() {
+				@Override
+				public void onChildViewAdded(final View parent, final View child) {
+					drawingOrderInvalid = true;
+
+					if (child instanceof VertigoView) {
+						restoreRemovedRegistration((VertigoView) child);
+					}
+
+					if (externalHierarchyChangeListener != null) {
+						externalHierarchyChangeListener.onChildViewAdded(parent, child);
+					}
+				}
+
+				@Override
+				public void onChildViewRemoved(final View parent, final View child) {
+					raisedViews.remove(child);
+					drawingOrderInvalid = true;
+
+					releaseRemovedRegistration(child);
+
+					if (externalHierarchyChangeListener != null) {
+						externalHierarchyChangeListener.onChildViewRemoved(parent, child);
+					}
+				}
+			};
+
 	/**
 	 * Constructs a new SlidingCoordinator.
 	 *
@@ -76,6 +562,7 @@ public class SimpleVertigoCoordinator extends FrameLayout implements VertigoCoor
 	 */
 	public SimpleVertigoCoordinator(final Context context) {
 		super(context);
+		init();
 	}
 
 	/**
@@ -88,6 +575,7 @@ public class SimpleVertigoCoordinator extends FrameLayout implements VertigoCoor
 	 */
 	public SimpleVertigoCoordinator(final Context context, final AttributeSet attrs) {
 		super(context, attrs);
+		init();
 	}
 
 	/**
@@ -103,6 +591,7 @@ public class SimpleVertigoCoordinator extends FrameLayout implements VertigoCoor
 	public SimpleVertigoCoordinator(final Context context, final AttributeSet attrs, final int
 			defStyleAttr) {
 		super(context, attrs, defStyleAttr);
+		init();
 	}
 
 	/**
@@ -123,364 +612,3271 @@ public class SimpleVertigoCoordinator extends FrameLayout implements VertigoCoor
 	public SimpleVertigoCoordinator(final Context context, final AttributeSet attrs, final int
 			defStyleAttr, final int defStyleRes) {
 		super(context, attrs, defStyleAttr, defStyleRes);
+		init();
 	}
 
-	@Override
-	public Set<String> getAllKeys() {
-		return Collections.unmodifiableSet(allViews.keySet());
+	/**
+	 * Initialises this view. Should only be called from a constructor.
+	 */
+	private void init() {
+		setChildrenDrawingOrderEnabled(true);
+		super.setOnHierarchyChangeListener(hierarchyChangeListener);
 	}
 
 	@Override
-	public Set<VertigoView> getAllViews() {
-		return Collections.unmodifiableSet(new HashSet<>(allViews.values()));
+	public void setOnHierarchyChangeListener(final OnHierarchyChangeListener listener) {
+		externalHierarchyChangeListener = listener;
 	}
 
 	@Override
-	public VertigoView getView(final String key) {
-		if (!allViews.containsKey(key)) {
-			return null;
-		} else {
-			return allViews.get(key);
+	protected int getChildDrawingOrder(final int childCount, final int i) {
+		if (drawingOrderInvalid || drawingOrder.length != childCount) {
+			rebuildDrawingOrder(childCount);
 		}
-	}
-
-	@Override
-	public void registerViewForCoordination(final VertigoView view, final String key) {
-		checkNotNull(view, "view cannot be null.");
-		checkNotNull(key, "key cannot be null.");
 
-		if (allViews.values().contains(view)) {
-			throw new IllegalArgumentException("The supplied view is already registered with a " +
-					"SlidingCoordinator.");
-		} else if (!(view instanceof View)) {
-			throw new IllegalArgumentException("The supplied view is not a subclass of android" +
-					".view.View");
-		} else {
-			allViews.put(key, view);
-			viewsInUpPosition.add(view);
-		}
+		return drawingOrder[i];
 	}
 
 	@Override
-	public void unregisterViewForCoordination(final String key) {
-		checkNotNull(key, "key cannot be null.");
+	protected void dispatchDraw(final Canvas canvas) {
+		// Clipping is only used during slides, since the coordinator isn't redrawn on other changes
+		clippingActive = currentAnimationCount.get() != 0 && computeVisibleBottoms();
+		nextClippedChild = 0;
 
-		if (allViews.keySet().contains(key)) {
-			viewsInUpPosition.remove(allViews.get(key));
-			allViews.remove(key);
+		try {
+			super.dispatchDraw(canvas);
+		} finally {
+			if (clippingActive) {
+				clippingActive = false;
+				Arrays.fill(clippedChildren, null);
+			}
 		}
 	}
 
 	@Override
-	public void makeViewActive(final String key, final boolean animate,
-			final ActiveViewChangedListener listener) {
-		if (!allViews.containsKey(key)) {
-			throw new IllegalArgumentException("The supplied key is not registered to a view.");
+	protected boolean drawChild(final Canvas canvas, final View child, final long drawingTime) {
+		if (!clippingActive) {
+			return drawChildOrPlaceholder(canvas, child, drawingTime);
 		}
 
-		final VertigoView viewToMakeActive = allViews.get(key);
+		final int visibleBottom = findVisibleBottom(child);
 
-		// It's simpler to use a stub implementation of the listener than deal with null
-		final ActiveViewChangedListener listenerToUse = listener == null ? getDefaultListener() :
-				listener;
-
-		if (currentAnimationCount.get() != 0) {
-			Timber.w("Cannot make view active, operation already in progress.");
-		} else if (viewToMakeActive.getCurrentState() == ACTIVE) {
-			Timber.w("View is already active.");
+		if (visibleBottom >= getHeight()) {
+			return drawChildOrPlaceholder(canvas, child, drawingTime);
+		} else if (visibleBottom <= Math.max(0, child.getY()) && child.getAnimation() == null) {
+			// The child is completely hidden, so there's no need to draw it at all
+			return false;
 		} else {
-			if (viewsInUpPosition.contains(viewToMakeActive)) {
-				moveOtherViewsDown(viewToMakeActive, animate, listenerToUse);
-			} else {
-				((View) viewToMakeActive).bringToFront();
-				moveViewUpWithoutMovingOtherViews(viewToMakeActive, animate, listenerToUse);
-			}
-		}
-	}
+			final int saveCount = canvas.save();
+			canvas.clipRect(0, 0, getWidth(), visibleBottom);
 
-	@Override
-	public void setAnimationDurationMs(final int animationDurationMs) {
-		this.animationDurationMs = IntChecker.checkGreaterThan(animationDurationMs, 0,
-				"animationDurationMs must be greater than zero");
-	}
+			final boolean result = drawChildOrPlaceholder(canvas, child, drawingTime);
+			canvas.restoreToCount(saveCount);
 
-	@Override
-	public int getAnimationDurationMs() {
-		return animationDurationMs;
+			return result;
+		}
 	}
 
 	/**
-	 * Returns an implementation of the ActiveViewChangedListener interface which does nothing when
-	 * called.
-	 *
-	 * @return the ActiveViewChangedListener
+	 * Measures the children in the same way as FrameLayout, except that registered views which are
+	 * parked in the down position are skipped while the specs and size of the coordinator are
+	 * unchanged. Parked views cannot be seen, so measuring them on every pass would make the cost
+	 * depend on the number of registered views rather than the number of visible views. When the
+	 * coordinator is resized the parked views are measured as well, so that their down position is
+	 * based on their new size. Parked views never contribute to the size of the coordinator.
 	 */
-	private ActiveViewChangedListener getDefaultListener() {
-		return new ActiveViewChangedListener() {
-			@Override
-			public void onActiveViewChanged(final VertigoCoordinator coordinator,
-					final VertigoView activeView) {
-				// Do nothing
-			}
-		};
+	@Override
+	protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+		final boolean specsChanged = !measuredOnce || widthMeasureSpec != lastWidthMeasureSpec ||
+				heightMeasureSpec != lastHeightMeasureSpec;
+		final int previousWidth = getMeasuredWidth();
+		final int previousHeight = getMeasuredHeight();
+
+		lastWidthMeasureSpec = widthMeasureSpec;
+		lastHeightMeasureSpec = heightMeasureSpec;
+		measuredOnce = true;
+
+		final boolean sizeKnown = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY &&
+				MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY;
+
+		int maxWidth = 0;
+		int maxHeight = 0;
+		int childState = 0;
+
+		matchParentChildren.clear();
+
+		for (int i = 0; i < getChildCount(); i++) {
+			final View child = getChildAt(i);
+
+			if (child.getVisibility() == GONE || isParkedDown(child)) {
+				continue;
+			}
+
+			measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+
+			final MarginLayoutParams params = (MarginLayoutParams) child.getLayoutParams();
+
+			maxWidth = Math.max(maxWidth, child.getMeasuredWidth() + params.leftMargin +
+					params.rightMargin);
+			maxHeight = Math.max(maxHeight, child.getMeasuredHeight() + params.topMargin +
+					params.bottomMargin);
+			childState = combineMeasuredStates(childState, child.getMeasuredState());
+
+			if (!sizeKnown && (params.width == LayoutParams.MATCH_PARENT ||
+					params.height == LayoutParams.MATCH_PARENT)) {
+				matchParentChildren.add(child);
+			}
+		}
+
+		maxWidth = Math.max(maxWidth + getPaddingLeft() + getPaddingRight(),
+				getSuggestedMinimumWidth());
+		maxHeight = Math.max(maxHeight + getPaddingTop() + getPaddingBottom(),
+				getSuggestedMinimumHeight());
+
+		setMeasuredDimension(resolveSizeAndState(maxWidth, widthMeasureSpec, childState),
+				resolveSizeAndState(maxHeight, heightMeasureSpec,
+						childState << MEASURED_HEIGHT_STATE_SHIFT));
+
+		// As in FrameLayout, children which match the parent are measured again using its size
+		if (matchParentChildren.size() > 1) {
+			for (int i = 0; i < matchParentChildren.size(); i++) {
+				measureMatchParentChild(matchParentChildren.get(i), widthMeasureSpec,
+						heightMeasureSpec);
+			}
+		}
+
+		matchParentChildren.clear();
+
+		if (specsChanged || getMeasuredWidth() != previousWidth ||
+				getMeasuredHeight() != previousHeight) {
+			for (int i = 0; i < getChildCount(); i++) {
+				final View child = getChildAt(i);
+
+				if (child.getVisibility() != GONE && isParkedDown(child)) {
+					measureSkippedChild(child);
+				}
+			}
+
+			parkedChildrenMeasured = true;
+		}
 	}
 
 	/**
-	 * Moves all views down, except for the supplied view and any views which are currently in the
-	 * down position.
-	 *
-	 * @param viewToKeepUp
-	 * 		a view in the up position which should not be moved down with the other views, not null
-	 * @param animate
-	 * 		whether or not views should be animated when moved
-	 * @param listener
-	 * 		the listener to call when the operation completes, may be null
-	 * @throws IllegalArgumentException
-	 * 		if {@code viewToKeepUp} is null
+	 * Lays out the children in the same way as FrameLayout, except that registered views which are
+	 * parked in the down position are skipped unless they were measured by the preceding measure
+	 * pass. Laying out a parked view which was not measured would clear any layout it has requested
+	 * without doing the work, so it would later move up with a stale size and content.
 	 */
-	private void moveOtherViewsDown(final VertigoView viewToKeepUp, final boolean animate,
-			final ActiveViewChangedListener listener) {
-		checkNotNull(viewToKeepUp, "viewToKeepUp cannot be null.");
+	@Override
+	protected void onLayout(final boolean changed, final int left, final int top, final int right,
+			final int bottom) {
+		for (int i = 0; i < getChildCount(); i++) {
+			final View child = getChildAt(i);
 
-		// Delivers callback when all other views have been moved down (but not if no views move)
-		final Consolidator consolidator = new Consolidator(viewsInUpPosition.size() - 1,
-				listener, viewToKeepUp);
+			if (child.getVisibility() != GONE && (parkedChildrenMeasured ||
+					!isParkedDown(child))) {
+				layoutChild(child, right - left, bottom - top);
+			}
+		}
 
-		// Create a copy of the set, so that the original set can be modified while iterating
-		final Set<VertigoView> viewsToMoveDown = new HashSet<>(viewsInUpPosition);
-		viewsToMoveDown.remove(viewToKeepUp);
+		parkedChildrenMeasured = false;
 
-		for (final VertigoView view : viewsToMoveDown) {
-			if (animate) {
-				final Animator moveDownAnimator = createMoveViewDownAnimator(view);
+		// Reapply the stored positions now that every positioned view has its current size
+		for (final Map.Entry<View, float[]> entry : downFractions.entrySet()) {
+			transitionSpec.applyTransition(entry.getKey(), entry.getValue()[0]);
+		}
+	}
 
-				moveDownAnimator.addListener(new AnimatorListenerAdapter() {
-					@Override
-					public void onAnimationEnd(final Animator animation) {
-						view.onStateChanged(INACTIVE);
-						viewsInUpPosition.remove(view);
-						currentAnimationCount.decrementAndGet();
-						consolidator.notifyMakeViewInactiveComplete();
-					}
-				});
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		startObservingSystemSettings();
+	}
 
-				currentAnimationCount.incrementAndGet();
-				moveDownAnimator.start();
-			} else {
-				moveViewDownWithoutAnimating(view);
-				view.onStateChanged(INACTIVE);
-				viewsInUpPosition.remove(view);
-				consolidator.notifyMakeViewInactiveComplete();
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		fastForwardTransitions();
+		stopObservingSystemSettings();
+
+		// Frame callbacks are not delivered while detached
+		removeCallbacks(releasePlaceholdersRunnable);
+		releaseReadyPlaceholders();
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(final int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+
+		if (visibility != VISIBLE) {
+			fastForwardTransitions();
+		}
+	}
+
+	@Override
+	protected void onVisibilityChanged(final View changedView, final int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+
+		if (visibility != VISIBLE) {
+			fastForwardTransitions();
+		}
+	}
+
+	@Override
+	public Set<String> getAllKeys() {
+		return Collections.unmodifiableSet(allViews.keySet());
+	}
+
+	@Override
+	public Set<VertigoView> getAllViews() {
+		return Collections.unmodifiableSet(new HashSet<>(allViews.values()));
+	}
+
+	@Override
+	public VertigoView getView(final String key) {
+		if (!allViews.containsKey(key)) {
+			return null;
+		} else {
+			return allViews.get(key);
+		}
+	}
+
+	@Override
+	public void registerViewForCoordination(final VertigoView view, final String key) {
+		checkNotNull(view, "view cannot be null.");
+		checkNotNull(key, "key cannot be null.");
+
+		if (!(view instanceof View) && !(view instanceof PlainVertigoView)) {
+			throw new IllegalArgumentException("The supplied view is not a subclass of android" +
+					".view.View");
+		} else if (isRegistered(view)) {
+			throw new IllegalArgumentException("The supplied view is already registered with a " +
+					"SlidingCoordinator.");
+		} else {
+			CoordinatorTrace.beginSection(SECTION_REGISTER);
+
+			try {
+				removedViews.remove(key);
+				allViews.put(key, view);
+				viewsInUpPosition.add(view);
+				downFractions.put(asView(view), new float[] {0});
+				updateAccessibility();
+				publishSnapshot();
+				eventLog.record(REGISTER, key, null);
+			} finally {
+				CoordinatorTrace.endSection();
+			}
+		}
+	}
+
+	@Override
+	public void registerViewForCoordination(final View view, final String key,
+			final PlainVertigoView.StateListener listener) {
+		checkNotNull(view, "view cannot be null.");
+		checkNotNull(key, "key cannot be null.");
+
+		registerViewForCoordination(new PlainVertigoView(view, listener), key);
+	}
+
+	@Override
+	public void unregisterViewForCoordination(final String key) {
+		checkNotNull(key, "key cannot be null.");
+
+		if (pendingInflations.containsKey(key)) {
+			AsyncPanelInflater.cancel(pendingInflations.remove(key));
+			dropWaitingActivations(key);
+		}
+
+		if (allViews.keySet().contains(key)) {
+			// Finish the current transition first, so that it never refers to unregistered views
+			if (currentRunner != null) {
+				currentRunner.end(SUPERSEDED);
+			}
+
+			// A replacement registered with the same key may need the snapshot straight away
+			if (pendingSnapshots.remove(allViews.get(key))) {
+				captureSnapshot(allViews.get(key));
 			}
+
+			exposeToAccessibility(asView(allViews.get(key)));
+			viewsInUpPosition.remove(allViews.get(key));
+			downFractions.remove(asView(allViews.get(key)));
+			placeholders.remove(asView(allViews.get(key)));
+			drawnUnderPlaceholders.remove(asView(allViews.get(key)));
+			allViews.remove(key);
+			publishSnapshot();
+			eventLog.record(UNREGISTER, key, null);
+		}
+
+		inflatedViewsAwaitingSwap.remove(key);
+
+		// The stand-in is no longer registered, so removing it has no further effects
+		final View standIn = inflationStandIns.remove(key);
+
+		if (standIn != null) {
+			removeView(standIn);
 		}
 	}
 
 	/**
-	 * Moves the supplied view up but does not change any of the other views.
+	 * Inflates a layout on a background thread, then adds the root of the layout to this
+	 * coordinator and registers it with the supplied key. The root can be any View, and is
+	 * registered as a {@link PlainVertigoView} if it does not implement VertigoView. The view is
+	 * added behind the other children in the down position, so it is not shown until it is made
+	 * active. Requests to make the key active before inflation finishes wait for the view, and the
+	 * waiting layout is inflated next. If snapshot placeholders are enabled and a snapshot exists
+	 * for the key, the request is played immediately using a stand-in view which draws the
+	 * snapshot, and the inflated view replaces the stand-in once no transition is running.
+	 * Unregistering the key cancels the inflation, and the requests waiting for it are dropped.
+	 * Cancelling the handle of a waiting request withdraws the request without moving any views.
+	 * <p>
+	 * Layouts are inflated one at a time on a thread shared by all coordinators. Layouts which
+	 * cannot be inflated off the main thread are inflated on the main thread instead.
 	 *
-	 * @param viewToMoveUp
-	 * 		the view to move up, not null
-	 * @param animate
-	 * 		whether or not views should be animated when moved
-	 * @param listener
-	 * 		the listener to call when the operation completes, may be null
+	 * @param layoutResId
+	 * 		the resource ID of the layout to inflate
+	 * @param key
+	 * 		the key to register the view with, not null
+	 * @param priority
+	 * 		the priority of the inflation, layouts with higher priorities are inflated first and
+	 * 		layouts with equal priorities are inflated in the order they were requested
 	 * @throws IllegalArgumentException
-	 * 		if {@code viewToMoveUp} is null
+	 * 		if {@code key} is already registered or is already being inflated
 	 */
-	private void moveViewUpWithoutMovingOtherViews(final VertigoView viewToMoveUp,
-			final boolean animate, final ActiveViewChangedListener listener) {
-		checkNotNull(viewToMoveUp, "view cannot be null.");
+	public void inflateViewAsync(@LayoutRes final int layoutResId, final String key,
+			final int priority) {
+		checkNotNull(key, "key cannot be null.");
 
-		if (viewsInUpPosition.contains(viewToMoveUp)) {
-			throw new IllegalArgumentException("The supplied view is already in the up position.");
+		if (allViews.containsKey(key) || pendingInflations.containsKey(key)) {
+			throw new IllegalArgumentException("The key \"" + key + "\" is already in use.");
 		}
 
-		if (animate) {
-			final Animator moveUpAnimation = createMoveViewUpAnimation(viewToMoveUp);
+		pendingInflations.put(key, AsyncPanelInflater.inflate(getContext(), layoutResId, this,
+				priority, inflationCallback));
+	}
 
-			moveUpAnimation.addListener(new AnimatorListenerAdapter() {
-				@Override
-				public void onAnimationEnd(final Animator animation) {
-					viewToMoveUp.onStateChanged(ACTIVE);
-					viewsInUpPosition.add(viewToMoveUp);
-					currentAnimationCount.decrementAndGet();
-					listener.onActiveViewChanged(SimpleVertigoCoordinator.this, viewToMoveUp);
-					notifyOtherViewsOnInactive(viewToMoveUp);
-				}
-			});
+	/**
+	 * Determines whether or not a layout is being inflated for the supplied key.
+	 *
+	 * @param key
+	 * 		the key to check, not null
+	 * @return true if the layout for the key is still being inflated, false otherwise
+	 */
+	public boolean isInflating(final String key) {
+		checkNotNull(key, "key cannot be null.");
 
-			currentAnimationCount.incrementAndGet();
-			moveUpAnimation.start();
-		} else {
-			moveViewUpWithoutAnimating(viewToMoveUp);
-			viewToMoveUp.onStateChanged(ACTIVE);
-			viewsInUpPosition.add(viewToMoveUp);
-			listener.onActiveViewChanged(SimpleVertigoCoordinator.this, viewToMoveUp);
-			notifyOtherViewsOnInactive(viewToMoveUp);
-		}
+		return pendingInflations.containsKey(key);
+	}
+
+	@Override
+	public void makeViewActive(final String key, final boolean animate,
+			final ActiveViewChangedListener listener) {
+		makeViewActive(key, animate, listener, null);
+	}
+
+	@Override
+	public TransitionHandle makeViewActive(final String key, final boolean animate) {
+		final TransitionHandle handle = new TransitionHandle();
+		makeViewActive(key, animate, null, handle);
+
+		return handle;
 	}
 
 	/**
-	 * Creates an animator which moves the supplied view down, but does not start the animation.
+	 * Makes a view active by moving the coordinated views, and reports the outcome to the supplied
+	 * handle.
 	 *
-	 * @param view
-	 * 		the view to move down, not null
-	 * @return the animator
+	 * @param key
+	 * 		the key for the view to move
+	 * @param animate
+	 * 		whether or not views should be animated when sliding up and down
+	 * @param listener
+	 * 		a listener to call when all changes have completed, may be null
+	 * @param handle
+	 * 		the handle to report the outcome to, may be null
 	 * @throws IllegalArgumentException
-	 * 		if {@code view} is null
+	 * 		if {@code key} is not registered to a view
 	 */
-	private Animator createMoveViewDownAnimator(final VertigoView view) {
-		checkNotNull(view, "view cannot be null.");
-		final View castView = (View) view;
-		return createYSlideAnimation(castView, castView.getHeight(), animationDurationMs);
+	private void makeViewActive(final String key, final boolean animate,
+			final ActiveViewChangedListener listener, final TransitionHandle handle) {
+		if (pendingInflations.containsKey(key) && !addInflationStandIn(key)) {
+			waitForInflation(key, animate, listener, handle);
+			return;
+		}
+
+		CoordinatorTrace.beginSection(SECTION_PLAN);
+
+		try {
+			planTransition(key, animate, listener, handle);
+		} finally {
+			CoordinatorTrace.endSection();
+		}
 	}
 
 	/**
-	 * Moves the supplied view down without animating. The effect is instantaneous.
+	 * Plans and starts the transition which makes a view active.
 	 *
-	 * @param view
-	 * 		the view to move down, not null
-	 * @throws IllegalArgumentException
-	 * 		if {@code view} is null
+	 * @param key
+	 * 		the key of the view to make active, not null
+	 * @param animate
+	 * 		whether or not the transition should be animated
+	 * @param listener
+	 * 		the listener to call when the view becomes active, may be null
+	 * @param handle
+	 * 		the handle to report the outcome to, may be null
 	 */
-	private void moveViewDownWithoutAnimating(final VertigoView view) {
-		checkNotNull(view, "view cannot be null.");
-		final View castView = (View) view;
-		castView.setY(castView.getY() + castView.getHeight());
+	private void planTransition(final String key, final boolean animate,
+			final ActiveViewChangedListener listener, final TransitionHandle handle) {
+		final List<NestedActivation> nestedActivations = new ArrayList<>();
+		final VertigoView viewToMakeActive = resolveKey(key, nestedActivations);
+
+		if (viewToMakeActive == null) {
+			throw new IllegalArgumentException("The supplied key is not registered to a view.");
+		}
+
+		if (isBusy(nestedActivations)) {
+			eventLog.record(MAKE_VIEW_ACTIVE, key, DROPPED);
+			finishHandle(handle, DROPPED);
+		} else if (isFullyActive(viewToMakeActive, nestedActivations)) {
+			eventLog.record(MAKE_VIEW_ACTIVE, key, COMPLETED);
+			finishHandle(handle, COMPLETED);
+		} else {
+			eventLog.record(MAKE_VIEW_ACTIVE, key, null);
+
+			final TransitionQuality quality = getTransitionQuality();
+			final boolean animationAllowed = animate && systemAllowsAnimation() &&
+					isVisibleToUser();
+			final boolean useAnimation = animationAllowed && quality != INSTANT;
+
+			final int durationMs = useAnimation ? getDurationForQuality(animationDurationMs,
+					quality) : 0;
+			final RunnerStep step = new RunnerStep(key, viewToMakeActive, nestedActivations,
+					durationMs, 0, listener);
+
+			new TransitionRunner(Collections.singletonList(step), handle, quality).run();
+
+			if (animationAllowed && quality == INSTANT) {
+				qualityController.onInstantTransitionEnded();
+			}
+		}
 	}
 
 	/**
-	 * Creates an animator which moves the supplied view up, but does not start the animation.
+	 * Sets the state of the coordinator directly, without animation. Any running transition is
+	 * abandoned and its handle reports {@link TransitionHandle.Outcome#SUPERSEDED}, without
+	 * delivering the callbacks of its remaining steps. The views are moved straight to their
+	 * positions, only views whose state actually changes receive {@link
+	 * VertigoView#onStateChanged(VertigoView.State)}, and the active view listeners are not
+	 * notified. The active view is raised in the same way as by {@link #makeViewActive(String,
+	 * boolean)}, so from Lollipop no layout is requested, and views which leave the down position
+	 * are measured and laid out directly. This is intended for restoring the state of coordinators
+	 * which are recycled, for example in RecyclerView items.
 	 *
-	 * @param view
-	 * 		the view to move up, not null
-	 * @return the animator
+	 * @param activeKey
+	 * 		the key of the view to make active, not null
+	 * @param upKeys
+	 * 		the keys of the views to place in the up position, not null, the active key is always
+	 * 		placed in the up position whether or not it is included
 	 * @throws IllegalArgumentException
-	 * 		if {@code view} is null
+	 * 		if {@code activeKey} is not registered to a view
 	 */
-	private Animator createMoveViewUpAnimation(final VertigoView view) {
-		checkNotNull(view, "view cannot be null");
-		final View castView = (View) view;
-		return createYSlideAnimation(castView, -castView.getHeight(), animationDurationMs);
+	public void bindState(final String activeKey, final Set<String> upKeys) {
+		checkNotNull(activeKey, "activeKey cannot be null.");
+		checkNotNull(upKeys, "upKeys cannot be null.");
+
+		if (!allViews.containsKey(activeKey)) {
+			throw new IllegalArgumentException("The supplied key is not registered to a view.");
+		}
+
+		if (currentRunner != null) {
+			currentRunner.abandon();
+		}
+
+		// Activations waiting for an inflation would otherwise override the bound state later
+		for (final String waitingKey : new ArrayList<>(waitingActivations.keySet())) {
+			dropWaitingActivations(waitingKey);
+		}
+
+		for (final Map.Entry<String, VertigoView> entry : allViews.entrySet()) {
+			final VertigoView view = entry.getValue();
+			final View androidView = asView(view);
+			final boolean active = entry.getKey().equals(activeKey);
+			final boolean up = active || upKeys.contains(entry.getKey());
+
+			if (up) {
+				viewsInUpPosition.add(view);
+				pendingSnapshots.remove(view);
+
+				// The view was skipped while parked, so it may not match the current specs
+				if (isParkedDown(androidView)) {
+					measureParkedChild(androidView);
+				}
+			} else {
+				viewsInUpPosition.remove(view);
+			}
+
+			downFractions.get(androidView)[0] = up ? 0 : 1;
+			transitionSpec.applyTransition(androidView, up ? 0 : 1);
+
+			final VertigoView.State state = active ? ACTIVE : INACTIVE;
+
+			if (view.getCurrentState() != state) {
+				view.onStateChanged(state);
+			}
+		}
+
+		bringToFrontOfDrawingOrder(asView(allViews.get(activeKey)));
+		updateAccessibility();
+		publishSnapshot();
+		eventLog.record(BIND_STATE, activeKey, null);
 	}
 
 	/**
-	 * Moves the supplied view up without animating. The effect is instantaneous.
+	 * Plays a sequence of activations. All steps run back to back on a single timeline, so there
+	 * are no idle frames between steps. Each step begins when the previous step's dwell time
+	 * elapses, and steps for views which are already active are skipped. If animations are
+	 * disabled, each step changes the views instantly. The dwell times are part of the timeline,
+	 * so they are scaled by the animator duration scale like the rest of it. They are still
+	 * observed in power save mode, but if the user has set the scale to zero or the coordinator
+	 * cannot be seen the whole sequence completes at once. No other transitions can start while the sequence plays, however the
+	 * sequence can be ended early by cancelling the returned handle, which plays all remaining
+	 * steps instantly.
 	 *
-	 * @param view
-	 * 		the view to move up, not null
+	 * @param sequence
+	 * 		the sequence to play, not null
+	 * @return a handle which tracks the whole sequence, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code sequence} is null
 	 * @throws IllegalArgumentException
-	 * 		if {@code view} is null
+	 * 		if any key in the sequence is not registered to a view
+	 */
+	public TransitionHandle playSequence(final ActivationSequence sequence) {
+		checkNotNull(sequence, "sequence cannot be null.");
+
+		final List<VertigoView> views = new ArrayList<>();
+		final List<List<NestedActivation>> nestedActivations = new ArrayList<>();
+		final List<NestedActivation> allNestedActivations = new ArrayList<>();
+
+		for (final ActivationSequence.Step step : sequence.getSteps()) {
+			final List<NestedActivation> stepNestedActivations = new ArrayList<>();
+			final VertigoView view = resolveKey(step.getKey(), stepNestedActivations);
+
+			if (view == null) {
+				throw new IllegalArgumentException("The key \"" + step.getKey() + "\" is not " +
+						"registered to a view.");
+			}
+
+			views.add(view);
+			nestedActivations.add(stepNestedActivations);
+			allNestedActivations.addAll(stepNestedActivations);
+		}
+
+		if (isBusy(allNestedActivations)) {
+			eventLog.record(PLAY_SEQUENCE, null, DROPPED);
+			return TransitionHandle.createFinished(DROPPED);
+		}
+
+		eventLog.record(PLAY_SEQUENCE, null, null);
+
+		final TransitionQuality quality = getTransitionQuality();
+		final boolean visible = isVisibleToUser();
+		final boolean animationAllowed = systemAllowsAnimation() && visible;
+		final boolean useAnimation = animationAllowed && quality != INSTANT;
+		final List<RunnerStep> runnerSteps = new ArrayList<>();
+
+		for (int i = 0; i < views.size(); i++) {
+			final ActivationSequence.Step step = sequence.getSteps().get(i);
+			final int durationMs = useAnimation ? getDurationForQuality(step.getDurationMs(),
+					quality) : 0;
+
+			// Nothing can be seen during the dwell times, so the sequence is fast-forwarded
+			final int dwellMs = visible ? step.getDwellMs() : 0;
+
+			runnerSteps.add(new RunnerStep(step.getKey(), views.get(i), nestedActivations.get(i),
+					durationMs, dwellMs, null));
+		}
+
+		final TransitionHandle handle = new TransitionHandle();
+		new TransitionRunner(runnerSteps, handle, quality).run();
+
+		if (animationAllowed && quality == INSTANT) {
+			qualityController.onInstantTransitionEnded();
+		}
+
+		return handle;
+	}
+
+	/**
+	 * Writes the recent operations of this coordinator to the supplied writer, from oldest to
+	 * newest. Each event records the operation, the key it applied to, its outcome and the time it
+	 * occurred. This is intended for diagnostics, for example from {@link
+	 * android.app.Activity#dump(String, java.io.FileDescriptor, PrintWriter, String[])} so that the
+	 * events are included in bug reports.
+	 *
+	 * @param prefix
+	 * 		the prefix to write before each line, not null
+	 * @param writer
+	 * 		the writer to write to, not null
 	 */
-	private void moveViewUpWithoutAnimating(final VertigoView view) {
-		checkNotNull(view, "view cannot be null");
-		final View castView = (View) view;
-		castView.setY(castView.getY() - castView.getHeight());
+	public void dumpEvents(final String prefix, final PrintWriter writer) {
+		eventLog.dump(prefix, writer);
 	}
 
 	/**
-	 * Calls the {@link VertigoView#onStateChanged(VertigoView.State)} method with INACTIVE on every
-	 * view except the supplied view.
+	 * Returns an immutable snapshot of the coordinator state. A new snapshot is published whenever
+	 * views are registered or unregistered, and whenever a transition starts or completes. This
+	 * method can be called from any thread, and returns the most recent snapshot without blocking
+	 * or allocating.
 	 *
-	 * @param view
-	 * 		the view to not notify, may be null
+	 * @return the most recent snapshot, not null
 	 */
-	private void notifyOtherViewsOnInactive(final VertigoView view) {
-		for (final VertigoView otherView : allViews.values()) {
-			if (otherView != view) {
-				otherView.onStateChanged(INACTIVE);
+	public CoordinatorSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	@Override
+	public void addActiveViewChangedListener(final ActiveViewChangedListener listener) {
+		checkNotNull(listener, "listener cannot be null.");
+
+		final ActiveViewChangedListener[] current = registeredListeners;
+
+		for (final ActiveViewChangedListener existing : current) {
+			if (existing == listener) {
+				return;
+			}
+		}
+
+		final ActiveViewChangedListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+
+		registeredListeners = updated;
+	}
+
+	@Override
+	public void removeActiveViewChangedListener(final ActiveViewChangedListener listener) {
+		final ActiveViewChangedListener[] current = registeredListeners;
+
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == listener) {
+				final ActiveViewChangedListener[] updated = new
+						ActiveViewChangedListener[current.length - 1];
+
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+
+				registeredListeners = updated;
+				return;
 			}
 		}
 	}
 
 	/**
-	 * Creates an animator which smoothly moves a activeView in the Y direction..
+	 * Submits a call to {@link #registerViewForCoordination(VertigoView, String)}. This method can
+	 * be called from any thread and never blocks. The registration occurs on the main thread in a
+	 * batch with all other submitted commands. If the view is already registered when the command
+	 * executes, the request is dropped and recorded as dropped in the event log.
 	 *
 	 * @param view
-	 * 		the activeView to animate
-	 * @param distancePx
-	 * 		the distance to move the activeView, positive downwards, measured in pixels
-	 * @param animationDurationMs
-	 * 		the length of time to use for the animation, measured in milliseconds
-	 * @return the animation being used, not yet started
+	 * 		the view to register, not null
+	 * @param key
+	 * 		a String key which uniquely identifies the view, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code view} or {@code key} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code view} is not a subclass of View or a PlainVertigoView
 	 */
-	private Animator createYSlideAnimation(final View view, final float distancePx,
-			final int animationDurationMs) {
-		final float startYPosition = view.getY();
+	public void submitRegisterViewForCoordination(final VertigoView view, final String key) {
+		checkNotNull(view, "view cannot be null.");
+		checkNotNull(key, "key cannot be null.");
 
-		final ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
-		animator.setDuration(animationDurationMs);
+		if (!(view instanceof View) && !(view instanceof PlainVertigoView)) {
+			throw new IllegalArgumentException("The supplied view is not a subclass of android" +
+					".view.View");
+		}
 
-		animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+		submitCommand(new Runnable() {
 			@Override
-			public void onAnimationUpdate(final ValueAnimator valueAnimator) {
-				view.setY(startYPosition + (valueAnimator.getAnimatedFraction() * distancePx));
+			public void run() {
+				// Throwing here would crash the main thread instead of the submitting thread
+				if (isRegistered(view)) {
+					eventLog.record(REGISTER, key, DROPPED);
+				} else {
+					registerViewForCoordination(view, key);
+				}
 			}
 		});
+	}
+
+	/**
+	 * Submits a call to {@link #unregisterViewForCoordination(String)}. This method can be called
+	 * from any thread and never blocks. The change occurs on the main thread in a batch with all
+	 * other submitted commands.
+	 *
+	 * @param key
+	 * 		the key for the view to remove, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
+	 */
+	public void submitUnregisterViewForCoordination(final String key) {
+		checkNotNull(key, "key cannot be null.");
 
-		animator.addListener(new AnimatorListenerAdapter() {
+		submitCommand(new Runnable() {
 			@Override
-			public void onAnimationCancel(Animator animation) {
-				view.setY(startYPosition);
+			public void run() {
+				unregisterViewForCoordination(key);
 			}
 		});
-
-		animator.start();
-		return animator;
 	}
 
 	/**
-	 * Delivers an active changed callback when a particular number of views notify they are
-	 * inactive.
+	 * Submits a call to {@link #makeViewActive(String, boolean, ActiveViewChangedListener)}. This
+	 * method can be called from any thread and never blocks. The change occurs on the main thread
+	 * in a batch with all other submitted commands, and the listener is called on the main thread.
+	 * If the key is not registered when the command executes, the request is dropped.
+	 * Submitted commands are executed in the order they were submitted, so a view may be registered
+	 * and made active by two consecutive submissions.
+	 *
+	 * @param key
+	 * 		the key for the view to move, not null
+	 * @param animate
+	 * 		whether or not views should be animated when sliding up and down
+	 * @param listener
+	 * 		a listener to call when all changes have completed, may be null
+	 * @return a handle which reports the outcome of the request, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
 	 */
-	private class Consolidator {
-		/**
-		 * The number of notifications which must be received to trigger the callback.
-		 */
-		private final int triggerCount;
+	public TransitionHandle submitMakeViewActive(final String key, final boolean animate,
+			final ActiveViewChangedListener listener) {
+		checkNotNull(key, "key cannot be null.");
 
+		final TransitionHandle handle = new TransitionHandle();
+
+		submitCommand(new Runnable() {
+			@Override
+			public void run() {
+				// Throwing here would crash the main thread instead of the submitting thread
+				if (pendingInflations.containsKey(key) ||
+						resolveKey(key, new ArrayList<NestedActivation>()) != null) {
+					makeViewActive(key, animate, listener, handle);
+				} else {
+					handle.finish(DROPPED);
+				}
+			}
+		});
+
+		return handle;
+	}
+
+	@Override
+	public void setAnimationDurationMs(final int animationDurationMs) {
+		this.animationDurationMs = IntChecker.checkGreaterThan(animationDurationMs, 0,
+				"animationDurationMs must be greater than zero");
+	}
+
+	@Override
+	public int getAnimationDurationMs() {
+		return animationDurationMs;
+	}
+
+	@Override
+	public void setTransitionSpec(final TransitionSpec transitionSpec) {
+		checkNotNull(transitionSpec, "transitionSpec cannot be null.");
+
+		// Move the views from the old representation of their positions to the new one
+		for (final Map.Entry<View, float[]> entry : downFractions.entrySet()) {
+			this.transitionSpec.clearTransition(entry.getKey());
+			transitionSpec.applyTransition(entry.getKey(), entry.getValue()[0]);
+		}
+
+		this.transitionSpec = transitionSpec;
+		invalidate();
+	}
+
+	@Override
+	public TransitionSpec getTransitionSpec() {
+		return transitionSpec;
+	}
+
+	@Override
+	public void setTransitionEasing(final TransitionEasing transitionEasing) {
+		this.transitionEasing = checkNotNull(transitionEasing, "transitionEasing cannot be null.");
+	}
+
+	@Override
+	public TransitionEasing getTransitionEasing() {
+		return transitionEasing;
+	}
+
+	/**
+	 * Enables or disables adaptive transition quality. When enabled, the coordinator monitors the
+	 * frames of its animated transitions. If consecutive transitions drop too many frames the
+	 * transitions are first shortened, then rendered from hardware layers, and finally replaced with
+	 * instant changes. The quality is raised again when performance recovers. Adaptive quality is
+	 * disabled by default, and disabling it restores full quality.
+	 *
+	 * @param enabled
+	 * 		true to enable adaptive quality, false to disable it
+	 */
+	public void setAdaptiveQualityEnabled(final boolean enabled) {
+		adaptiveQualityEnabled = enabled;
+
+		if (!enabled) {
+			qualityController.reset();
+		}
+	}
+
+	/**
+	 * @return true if adaptive transition quality is enabled, false otherwise
+	 */
+	public boolean isAdaptiveQualityEnabled() {
+		return adaptiveQualityEnabled;
+	}
+
+	/**
+	 * Enables or disables weak registration. Registered children are always unregistered when they
+	 * are removed from this coordinator, so that the coordinator never keeps removed views alive.
+	 * When weak registration is enabled, the coordinator also remembers the key of each removed
+	 * child using a weak reference, and registers the child again with the same key if it is added
+	 * back before being garbage collected. The child is restored to the position and state it had
+	 * when it was removed, unless it was active and another view has become active since, in which
+	 * case it is restored as inactive. Weak registration is disabled by default, and disabling it
+	 * forgets all removed children.
+	 *
+	 * @param enabled
+	 * 		true to enable weak registration, false to disable it
+	 */
+	public void setWeakRegistrationEnabled(final boolean enabled) {
+		weakRegistrationEnabled = enabled;
+
+		if (!enabled) {
+			removedViews.clear();
+		}
+	}
+
+	/**
+	 * @return true if weak registration is enabled, false otherwise
+	 */
+	public boolean isWeakRegistrationEnabled() {
+		return weakRegistrationEnabled;
+	}
+
+	/**
+	 * @return the quality which will be used for the next transition, not null
+	 */
+	public TransitionQuality getTransitionQuality() {
+		return adaptiveQualityEnabled ? qualityController.getQuality() : FULL;
+	}
+
+	/**
+	 * Limits the number of times per second that views are updated during transitions. Frames in
+	 * excess of the limit are skipped, which saves power at the expense of smoothness.
+	 *
+	 * @param maxTransitionFrameRate
+	 * 		the maximum number of updates per second, or zero to remove the limit
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxTransitionFrameRate} is less than zero
+	 */
+	public void setMaxTransitionFrameRate(final int maxTransitionFrameRate) {
+		if (maxTransitionFrameRate < 0) {
+			throw new IllegalArgumentException("maxTransitionFrameRate cannot be less than zero.");
+		}
+
+		this.maxTransitionFrameRate = maxTransitionFrameRate;
+	}
+
+	/**
+	 * @return the maximum number of times per second that views are updated during transitions,
+	 * zero if updates are not limited
+	 */
+	public int getMaxTransitionFrameRate() {
+		return maxTransitionFrameRate;
+	}
+
+	/**
+	 * Enables or disables the shared scheduler. When enabled, the transitions of this coordinator
+	 * are driven by the process-wide {@link TransitionScheduler} rather than by their own
+	 * animators, so that many coordinators can transition at once for the cost of a single frame
+	 * callback, and so that transitions can be grouped. The shared scheduler is disabled by
+	 * default. Changing this setting does not affect a transition which is already running.
+	 *
+	 * @param enabled
+	 * 		true to use the shared scheduler, false to use individual animators
+	 */
+	public void setSharedSchedulerEnabled(final boolean enabled) {
+		sharedSchedulerEnabled = enabled;
+	}
+
+	/**
+	 * @return true if the shared scheduler is enabled, false otherwise
+	 */
+	public boolean isSharedSchedulerEnabled() {
+		return sharedSchedulerEnabled;
+	}
+
+	/**
+	 * Enables or disables snapshot placeholders. When enabled, a bitmap snapshot of each view which
+	 * moves down is captured once the main thread is idle and no transition is running, and kept in
+	 * a cache of the supplied size. A view which is unregistered before its snapshot is captured is
+	 * captured as it is unregistered, and views which move up again first or would not fit in the
+	 * cache are never captured. Bitmaps which leave the cache are reused for later snapshots of
+	 * the same size. If a view registered
+	 * with the same key is made active before it has been laid out (for example because it has
+	 * just been created to replace the original view), the snapshot is drawn in its place until
+	 * the view has been laid out and drawn once, and the view is swapped in on the following frame.
+	 * Snapshots are also used to play activations of layouts which are still being inflated (see
+	 * {@link #inflateViewAsync(int, String, int)}). Activation therefore never has to wait for the
+	 * view to be built. Snapshot placeholders are disabled by default.
+	 *
+	 * @param maxSizeBytes
+	 * 		the maximum total size of the cached snapshots, measured in bytes, or zero to disable
+	 * 		snapshot placeholders and discard all snapshots
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxSizeBytes} is less than zero
+	 */
+	public void setSnapshotCacheSize(final int maxSizeBytes) {
+		if (maxSizeBytes < 0) {
+			throw new IllegalArgumentException("maxSizeBytes cannot be less than zero.");
+		}
+
+		snapshotCacheSizeBytes = maxSizeBytes;
+
+		if (maxSizeBytes == 0) {
+			snapshotCache = null;
+			pendingSnapshots.clear();
+			reusableSnapshotBitmaps.clear();
+		} else {
+			final LruCache<String, Bitmap> newCache = new LruCache<String, Bitmap>(maxSizeBytes) {
+				@Override
+				protected int sizeOf(final String key, final Bitmap value) {
+					return value.getByteCount();
+				}
+
+				@Override
+				protected void entryRemoved(final boolean evicted, final String key,
+						final Bitmap oldValue, final Bitmap newValue) {
+					// Snapshots are captured into the bitmap they replace when possible
+					if (oldValue != newValue) {
+						keepForReuse(oldValue);
+					}
+				}
+			};
+
+			if (snapshotCache != null) {
+				for (final Map.Entry<String, Bitmap> entry : snapshotCache.snapshot().entrySet()) {
+					newCache.put(entry.getKey(), entry.getValue());
+				}
+			}
+
+			snapshotCache = newCache;
+		}
+	}
+
+	/**
+	 * @return the maximum total size of the cached snapshots, measured in bytes, zero if snapshot
+	 * placeholders are disabled
+	 */
+	public int getSnapshotCacheSize() {
+		return snapshotCacheSizeBytes;
+	}
+
+	/**
+	 * Finishes the supplied handle with the supplied outcome, if the handle is not null.
+	 *
+	 * @param handle
+	 * 		the handle to finish, may be null
+	 * @param outcome
+	 * 		the outcome of the transition, not null
+	 */
+	private static void finishHandle(final TransitionHandle handle,
+			final TransitionHandle.Outcome outcome) {
+		if (handle != null) {
+			handle.finish(outcome);
+		}
+	}
+
+	/**
+	 * Delivers an active view changed callback to the supplied listener and then to every
+	 * registered listener.
+	 *
+	 * @param listener
+	 * 		the listener supplied with the request which changed the active view, may be null
+	 * @param activeView
+	 * 		the view which was made active, not null
+	 */
+	private void dispatchActiveViewChanged(final ActiveViewChangedListener listener,
+			final VertigoView activeView) {
+		if (listener != null) {
+			listener.onActiveViewChanged(this, activeView);
+		}
+
+		// Read the field once, since it may be replaced by a listener during dispatch
+		final ActiveViewChangedListener[] listeners = registeredListeners;
+
+		for (final ActiveViewChangedListener registeredListener : listeners) {
+			registeredListener.onActiveViewChanged(this, activeView);
+		}
+	}
+
+	/**
+	 * Publishes a snapshot of the current coordinator state for access from other threads.
+	 */
+	private void publishSnapshot() {
+		String activeKey = null;
+		final Set<String> upKeys = new HashSet<>();
+		final Set<String> downKeys = new HashSet<>();
+
+		for (final Map.Entry<String, VertigoView> entry : allViews.entrySet()) {
+			final VertigoView view = entry.getValue();
+
+			if (view.getCurrentState() == ACTIVE) {
+				activeKey = entry.getKey();
+			}
+
+			if (viewsInUpPosition.contains(view)) {
+				upKeys.add(entry.getKey());
+			} else {
+				downKeys.add(entry.getKey());
+			}
+		}
+
+		snapshot = new CoordinatorSnapshot(activeKey, upKeys, downKeys,
+				currentAnimationCount.get() != 0);
+	}
+
+	/**
+	 * Adds a command to the queue of pending commands, and schedules the queue to be drained on the
+	 * main thread if it isn't already scheduled.
+	 *
+	 * @param command
+	 * 		the command to execute, not null
+	 */
+	private void submitCommand(final Runnable command) {
+		pendingCommands.offer(command);
+
+		if (commandDrainScheduled.compareAndSet(false, true)) {
+			mainThreadHandler.post(commandDrainer);
+		}
+	}
+
+	/**
+	 * Determines whether or not the system settings allow animations to be shown. Animations are
+	 * not allowed if the user has set the animator duration scale to zero (for example using the
+	 * developer options) or if the device is in power save mode. For other scales the duration is
+	 * adjusted by the ValueAnimator, so it does not need to be scaled here.
+	 *
+	 * @return true if animations are allowed, false otherwise
+	 */
+	private boolean systemAllowsAnimation() {
+		return getAnimatorDurationScale() != 0 && !isPowerSaveMode();
+	}
+
+	/**
+	 * Determines whether or not the coordinator can currently be seen. Transitions which cannot be
+	 * seen are not animated.
+	 *
+	 * @return true if the coordinator and all of its ancestors are visible and its window is
+	 * visible, false otherwise
+	 */
+	private boolean isVisibleToUser() {
+		return getWindowVisibility() == VISIBLE && isShown();
+	}
+
+	/**
+	 * Jumps the current transition to its end state, delivering all state changes and callbacks
+	 * before this method returns. This prevents transitions from animating while they cannot be
+	 * seen. Has no effect if no transition is running.
+	 */
+	private void fastForwardTransitions() {
+		// May be called by the super constructor, before the fields are initialised
+		if (currentRunner != null) {
+			currentRunner.end(COMPLETED);
+		}
+	}
+
+	/**
+	 * Starts caching the system settings which affect animation, so that they are not read on
+	 * every transition. The cached values are refreshed whenever the settings change.
+	 */
+	@SuppressWarnings("deprecation") // Global setting is only available from API 17
+	@TargetApi(21) // For lint
+	private void startObservingSystemSettings() {
+		if (observingSystemSettings) {
+			return;
+		}
+
+		final ContentResolver resolver = getContext().getContentResolver();
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+			resolver.registerContentObserver(Settings.Global.getUriFor(Settings.Global
+					.ANIMATOR_DURATION_SCALE), false, animatorDurationScaleObserver);
+		} else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			resolver.registerContentObserver(Settings.System.getUriFor(Settings.System
+					.ANIMATOR_DURATION_SCALE), false, animatorDurationScaleObserver);
+		}
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			getContext().registerReceiver(powerSaveModeReceiver, new IntentFilter(PowerManager
+					.ACTION_POWER_SAVE_MODE_CHANGED));
+		}
+
+		animatorDurationScale = readAnimatorDurationScale();
+		powerSaveMode = readPowerSaveMode();
+		observingSystemSettings = true;
+	}
+
+	/**
+	 * Stops caching the system settings which affect animation. Has no effect if they are not
+	 * being observed.
+	 */
+	@TargetApi(21) // For lint
+	private void stopObservingSystemSettings() {
+		if (!observingSystemSettings) {
+			return;
+		}
+
+		getContext().getContentResolver().unregisterContentObserver(
+				animatorDurationScaleObserver);
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			getContext().unregisterReceiver(powerSaveModeReceiver);
+		}
+
+		observingSystemSettings = false;
+	}
+
+	/**
+	 * @return the global animator duration scale set by the user, 1 if it cannot be determined
+	 */
+	private float getAnimatorDurationScale() {
+		return observingSystemSettings ? animatorDurationScale : readAnimatorDurationScale();
+	}
+
+	/**
+	 * @return true if the device is in power save mode, false otherwise
+	 */
+	private boolean isPowerSaveMode() {
+		return observingSystemSettings ? powerSaveMode : readPowerSaveMode();
+	}
+
+	/**
+	 * Reads the global animator duration scale from the system settings. This requires a call to
+	 * the settings provider, so {@link #getAnimatorDurationScale()} should be used instead.
+	 *
+	 * @return the global animator duration scale set by the user, 1 if it cannot be determined
+	 */
+	@SuppressWarnings("deprecation") // Global setting is only available from API 17
+	@TargetApi(17) // For lint
+	private float readAnimatorDurationScale() {
+		final ContentResolver resolver = getContext().getContentResolver();
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+			return Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1);
+		} else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			return Settings.System.getFloat(resolver, Settings.System.ANIMATOR_DURATION_SCALE, 1);
+		} else {
+			// The setting did not exist prior to Jelly Bean
+			return 1;
+		}
+	}
+
+	/**
+	 * Reads the power save mode from the power manager. This requires a call to the system
+	 * service, so {@link #isPowerSaveMode()} should be used instead.
+	 *
+	 * @return true if the device is in power save mode, false otherwise
+	 */
+	@TargetApi(21) // For lint
+	private boolean readPowerSaveMode() {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+			return false;
+		}
+
+		final PowerManager powerManager = (PowerManager) getContext().getSystemService(Context
+				.POWER_SERVICE);
+
+		return powerManager != null && powerManager.isPowerSaveMode();
+	}
+
+	/**
+	 * Unregisters a child which has been removed from this coordinator. If weak registration is
+	 * enabled and the child implements VertigoView, the key is remembered so that the registration
+	 * can be restored if the child is added back. Has no effect if the child is not registered.
+	 *
+	 * @param child
+	 * 		the removed child, not null
+	 */
+	private void releaseRemovedRegistration(final View child) {
+		// Stand-ins are removed by unregistering them, so it must not happen again here
+		inflationStandIns.values().remove(child);
+
+		for (final Map.Entry<String, VertigoView> entry : allViews.entrySet()) {
+			if (asView(entry.getValue()) == child) {
+				final String key = entry.getKey();
+				final VertigoView registeredView = entry.getValue();
+				final boolean up = viewsInUpPosition.contains(registeredView);
+
+				unregisterViewForCoordination(key);
+
+				// A weakly referenced PlainVertigoView wrapper would be collected immediately
+				if (weakRegistrationEnabled && registeredView == child) {
+					removedViews.put(key, new RemovedRegistration(registeredView, up));
+				}
+
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Defers an activation request until the layout for the key has been inflated, and moves the
+	 * layout to the front of the inflation queue. Cancelling the handle withdraws the request.
+	 *
+	 * @param key
+	 * 		the key of the layout being inflated, not null
+	 * @param animate
+	 * 		whether or not the transition should be animated
+	 * @param listener
+	 * 		the listener to call when the view becomes active, may be null
+	 * @param handle
+	 * 		the handle to report the outcome to, may be null
+	 */
+	private void waitForInflation(final String key, final boolean animate,
+			final ActiveViewChangedListener listener, final TransitionHandle handle) {
+		List<WaitingActivation> waiting = waitingActivations.get(key);
+
+		if (waiting == null) {
+			waiting = new ArrayList<>();
+			waitingActivations.put(key, waiting);
+		}
+
+		final WaitingActivation activation = new WaitingActivation(animate, listener, handle);
+		waiting.add(activation);
+
+		if (handle != null) {
+			handle.setCancelAction(new Runnable() {
+				@Override
+				public void run() {
+					cancelWaitingActivation(key, activation);
+				}
+			});
+		}
+
+		AsyncPanelInflater.prioritise(pendingInflations.get(key));
+	}
+
+	/**
+	 * Withdraws an activation request which is waiting for a layout, and reports it as cancelled.
+	 * Has no effect if the request is no longer waiting.
+	 *
+	 * @param key
+	 * 		the key of the layout being inflated, not null
+	 * @param activation
+	 * 		the request to withdraw, not null
+	 */
+	private void cancelWaitingActivation(final String key, final WaitingActivation activation) {
+		final List<WaitingActivation> waiting = waitingActivations.get(key);
+
+		if (waiting != null && waiting.remove(activation)) {
+			if (waiting.isEmpty()) {
+				waitingActivations.remove(key);
+			}
+
+			eventLog.record(MAKE_VIEW_ACTIVE, key, CANCELLED);
+			finishHandle(activation.handle, CANCELLED);
+		}
+	}
+
+	/**
+	 * Adds and registers a view which has been inflated in the background, then plays any
+	 * activation requests which were waiting for it. Results of cancelled requests are discarded.
+	 *
+	 * @param request
+	 * 		the request which was inflated, not null
+	 * @param view
+	 * 		the root of the inflated layout, not null
+	 */
+	private void onViewInflated(final AsyncPanelInflater.Request request, final View view) {
+		String key = null;
+
+		for (final Map.Entry<String, AsyncPanelInflater.Request> entry :
+				pendingInflations.entrySet()) {
+			if (entry.getValue() == request) {
+				key = entry.getKey();
+			}
+		}
+
+		if (key == null) {
+			return;
+		}
+
+		pendingInflations.remove(key);
+
+		if (inflationStandIns.containsKey(key)) {
+			inflatedViewsAwaitingSwap.put(key, view);
+			replaceInflationStandIns();
+		} else if (!allViews.containsKey(key)) {
+			addView(view, 0);
+			registerInflatedView(view, key);
+
+			// Park the view in the down position until it is made active
+			parkRegisteredView(key);
+		}
+
+		final List<WaitingActivation> waiting = waitingActivations.remove(key);
+
+		if (waiting != null) {
+			for (final WaitingActivation activation : waiting) {
+				makeViewActive(key, activation.animate, activation.listener, activation.handle);
+			}
+		}
+	}
+
+	/**
+	 * Registers a view which has been inflated in the background.
+	 *
+	 * @param view
+	 * 		the root of the inflated layout, not null
+	 * @param key
+	 * 		the key to register the view with, not null
+	 */
+	private void registerInflatedView(final View view, final String key) {
+		if (view instanceof VertigoView) {
+			registerViewForCoordination((VertigoView) view, key);
+		} else {
+			registerViewForCoordination(view, key, null);
+		}
+	}
+
+	/**
+	 * Moves a registered view to the down position immediately and makes it inactive.
+	 *
+	 * @param key
+	 * 		the key of the view, not null
+	 */
+	private void parkRegisteredView(final String key) {
+		final VertigoView registeredView = allViews.get(key);
+
+		viewsInUpPosition.remove(registeredView);
+		applyTransitionSpec(asView(registeredView), 1);
+		registeredView.onStateChanged(INACTIVE);
+		updateAccessibility();
+		publishSnapshot();
+	}
+
+	/**
+	 * Registers a stand-in for a layout which is being inflated, if snapshot placeholders are
+	 * enabled and a snapshot exists for its key. The stand-in is parked in the down position and
+	 * always draws the snapshot, so it can be made active in place of the layout.
+	 *
+	 * @param key
+	 * 		the key of the layout being inflated, not null
+	 * @return true if a stand-in is registered for the key, false otherwise
+	 */
+	private boolean addInflationStandIn(final String key) {
+		if (inflationStandIns.containsKey(key)) {
+			return true;
+		}
+
+		final Bitmap snapshot = snapshotCache == null ? null : snapshotCache.get(key);
+
+		if (snapshot == null || allViews.containsKey(key)) {
+			return false;
+		}
+
+		final View standIn = new View(getContext());
+		standIn.setLayoutParams(new LayoutParams(snapshot.getWidth(), snapshot.getHeight()));
+
+		addView(standIn, 0);
+		registerViewForCoordination(standIn, key, null);
+		parkRegisteredView(key);
+		placeholders.put(standIn, snapshot);
+		inflationStandIns.put(key, standIn);
+
+		return true;
+	}
+
+	/**
+	 * Replaces the stand-ins of layouts which have finished inflating with the inflated views.
+	 * Has no effect while a transition is running, since the transition refers to the stand-ins.
+	 */
+	private void replaceInflationStandIns() {
+		if (currentRunner != null || inflatedViewsAwaitingSwap.isEmpty()) {
+			return;
+		}
+
+		for (final Map.Entry<String, View> entry : inflatedViewsAwaitingSwap.entrySet()) {
+			replaceInflationStandIn(entry.getKey(), entry.getValue());
+		}
+
+		inflatedViewsAwaitingSwap.clear();
+	}
+
+	/**
+	 * Replaces the stand-in for a key with the inflated view. The view takes the position, state
+	 * and drawing order of the stand-in, and continues to draw the snapshot until it is ready.
+	 *
+	 * @param key
+	 * 		the key of the stand-in, not null
+	 * @param view
+	 * 		the root of the inflated layout, not null
+	 */
+	private void replaceInflationStandIn(final String key, final View view) {
+		final View standIn = inflationStandIns.remove(key);
+		final VertigoView standInView = allViews.get(key);
+		final boolean up = viewsInUpPosition.contains(standInView);
+		final boolean raised = raisedViews.contains(standIn);
+		final VertigoView.State state = standInView.getCurrentState();
+		final Bitmap snapshot = placeholders.remove(standIn);
+
+		// Unregister the stand-in directly, since the key stays registered throughout
+		exposeToAccessibility(standIn);
+		viewsInUpPosition.remove(standInView);
+		downFractions.remove(standIn);
+		drawnUnderPlaceholders.remove(standIn);
+		allViews.remove(key);
+
+		final int index = indexOfChild(standIn);
+		removeView(standIn);
+		addView(view, index);
+		registerInflatedView(view, key);
+
+		if (snapshot != null) {
+			placeholders.put(view, snapshot);
+		}
+
+		if (up) {
+			if (raised) {
+				bringToFrontOfDrawingOrder(view);
+			}
+
+			allViews.get(key).onStateChanged(state);
+			updateAccessibility();
+		} else {
+			parkRegisteredView(key);
+		}
+	}
+
+	/**
+	 * Reports the activation requests waiting for a layout as dropped.
+	 *
+	 * @param key
+	 * 		the key of the layout, not null
+	 */
+	private void dropWaitingActivations(final String key) {
+		final List<WaitingActivation> waiting = waitingActivations.remove(key);
+
+		if (waiting != null) {
+			for (final WaitingActivation activation : waiting) {
+				eventLog.record(MAKE_VIEW_ACTIVE, key, DROPPED);
+				finishHandle(activation.handle, DROPPED);
+			}
+		}
+	}
+
+	/**
+	 * Draws a child, or the placeholder for the child if it has one. Placeholders are drawn at the
+	 * current position of the child, using its alpha.
+	 *
+	 * @param canvas
+	 * 		the canvas to draw on, not null
+	 * @param child
+	 * 		the child to draw, not null
+	 * @param drawingTime
+	 * 		the time at which the drawing is occurring
+	 * @return true if the child requested an invalidation, false otherwise
+	 */
+	private boolean drawChildOrPlaceholder(final Canvas canvas, final View child,
+			final long drawingTime) {
+		final Bitmap placeholder = placeholders.isEmpty() ? null : placeholders.get(child);
+
+		if (placeholder == null) {
+			return super.drawChild(canvas, child, drawingTime);
+		}
+
+		boolean result = false;
+
+		// Draw ready views underneath their placeholders once, so that swapping them is invisible
+		if (isReadyToDraw(child) && !inflationStandIns.containsValue(child)) {
+			result = super.drawChild(canvas, child, drawingTime);
+			drawnUnderPlaceholders.add(child);
+
+			if (!placeholderReleaseScheduled) {
+				placeholderReleaseScheduled = true;
+				ViewCompat.postOnAnimation(this, releasePlaceholdersRunnable);
+			}
+		}
+
+		if (child.getVisibility() == VISIBLE) {
+			placeholderPaint.setAlpha((int) (child.getAlpha() * 255));
+			canvas.drawBitmap(placeholder, child.getX(), child.getY(), placeholderPaint);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Queues a snapshot of a registered view to be captured once the main thread is idle and no
+	 * transition is running. Has no effect if snapshot placeholders are disabled or the snapshot
+	 * is already queued.
+	 *
+	 * @param view
+	 * 		the view to capture, not null
+	 */
+	private void scheduleSnapshot(final VertigoView view) {
+		if (snapshotCache == null || pendingSnapshots.contains(view)) {
+			return;
+		}
+
+		pendingSnapshots.add(view);
+
+		if (!snapshotCaptureScheduled) {
+			snapshotCaptureScheduled = true;
+			Looper.myQueue().addIdleHandler(captureSnapshotsIdleHandler);
+		}
+	}
+
+	/**
+	 * Captures the snapshots of all queued views.
+	 */
+	private void capturePendingSnapshots() {
+		for (int i = 0; i < pendingSnapshots.size(); i++) {
+			captureSnapshot(pendingSnapshots.get(i));
+		}
+
+		pendingSnapshots.clear();
+	}
+
+	/**
+	 * Captures a snapshot of a registered view and stores it in the snapshot cache. Has no effect
+	 * if snapshot placeholders are disabled, the view has not been laid out, or the snapshot would
+	 * be too large to keep in the cache.
+	 *
+	 * @param view
+	 * 		the view to capture, not null
+	 */
+	private void captureSnapshot(final VertigoView view) {
+		final View androidView = asView(view);
+		final String key = getKeyForView(view);
+
+		if (snapshotCache == null || key == null || !isReadyToDraw(androidView) ||
+				placeholders.containsKey(androidView)) {
+			return;
+		}
+
+		final int width = androidView.getWidth();
+		final int height = androidView.getHeight();
+
+		// The cache would evict the snapshot as soon as it was stored
+		if ((long) width * height * SNAPSHOT_BYTES_PER_PIXEL > snapshotCacheSizeBytes) {
+			return;
+		}
+
+		final Bitmap bitmap = obtainSnapshotBitmap(key, width, height);
+
+		androidView.draw(new Canvas(bitmap));
+		snapshotCache.put(key, bitmap);
+	}
+
+	/**
+	 * Returns a cleared bitmap to capture a snapshot into. The bitmap of the existing snapshot for
+	 * the key is used if it has the right size and is not drawn as a placeholder, followed by any
+	 * bitmap of the right size which has left the cache. A new bitmap is only allocated if neither
+	 * exists.
+	 *
+	 * @param key
+	 * 		the key of the view being captured, not null
+	 * @param width
+	 * 		the width of the bitmap, measured in pixels
+	 * @param height
+	 * 		the height of the bitmap, measured in pixels
+	 * @return the bitmap, not null
+	 */
+	private Bitmap obtainSnapshotBitmap(final String key, final int width, final int height) {
+		final Bitmap cachedBitmap = snapshotCache.get(key);
+
+		if (cachedBitmap != null && cachedBitmap.getWidth() == width &&
+				cachedBitmap.getHeight() == height && !placeholders.containsValue(cachedBitmap)) {
+			cachedBitmap.eraseColor(0);
+			return cachedBitmap;
+		}
+
+		for (int i = 0; i < reusableSnapshotBitmaps.size(); i++) {
+			final Bitmap reusableBitmap = reusableSnapshotBitmaps.get(i);
+
+			if (reusableBitmap.getWidth() == width && reusableBitmap.getHeight() == height) {
+				reusableSnapshotBitmaps.remove(i);
+				reusableBitmap.eraseColor(0);
+				return reusableBitmap;
+			}
+		}
+
+		return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+	}
+
+	/**
+	 * Keeps a bitmap which has left the snapshot cache so that it can be reused by a later
+	 * snapshot. The bitmap is discarded if it is drawn as a placeholder or enough bitmaps are
+	 * already kept.
+	 *
+	 * @param bitmap
+	 * 		the bitmap which left the cache, not null
+	 */
+	private void keepForReuse(final Bitmap bitmap) {
+		if (reusableSnapshotBitmaps.size() < MAX_REUSABLE_SNAPSHOT_BITMAPS &&
+				!placeholders.containsValue(bitmap)) {
+			reusableSnapshotBitmaps.add(bitmap);
+		}
+	}
+
+	/**
+	 * Starts drawing the cached snapshot in place of a registered view, if the view is not ready
+	 * to be drawn and a snapshot exists for its key.
+	 *
+	 * @param view
+	 * 		the view which is about to be shown, not null
+	 */
+	private void usePlaceholderIfNotReady(final VertigoView view) {
+		final View androidView = asView(view);
+		final String key = getKeyForView(view);
+
+		if (snapshotCache == null || key == null || isReadyToDraw(androidView)) {
+			return;
+		}
+
+		final Bitmap snapshot = snapshotCache.get(key);
+
+		if (snapshot != null) {
+			placeholders.put(androidView, snapshot);
+		}
+	}
+
+	/**
+	 * Stops drawing placeholders for views which have been drawn underneath them and are still
+	 * ready to draw, and redraws the coordinator so that the views are swapped in. Views which
+	 * need to be laid out again keep their placeholders until they have been drawn again.
+	 */
+	private void releaseReadyPlaceholders() {
+		placeholderReleaseScheduled = false;
+
+		for (final View view : drawnUnderPlaceholders) {
+			if (isReadyToDraw(view) && placeholders.remove(view) != null) {
+				invalidate();
+			}
+		}
+
+		drawnUnderPlaceholders.clear();
+	}
+
+	/**
+	 * Determines whether or not a view has been measured and laid out, so that drawing it would
+	 * show its real content.
+	 *
+	 * @param view
+	 * 		the view to check, not null
+	 * @return true if the view is ready to be drawn, false otherwise
+	 */
+	private static boolean isReadyToDraw(final View view) {
+		return view.getWidth() > 0 && view.getHeight() > 0 && !view.isLayoutRequested();
+	}
+
+	/**
+	 * Returns the key which a registered view is registered with.
+	 *
+	 * @param view
+	 * 		the registered view, not null
+	 * @return the key, null if the view is not registered
+	 */
+	private String getKeyForView(final VertigoView view) {
+		for (final Map.Entry<String, VertigoView> entry : allViews.entrySet()) {
+			if (entry.getValue() == view) {
+				return entry.getKey();
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Determines whether or not a child is a registered view which is at rest in the down position.
+	 *
+	 * @param child
+	 * 		the child to check, not null
+	 * @return true if the child is parked in the down position, false otherwise
+	 */
+	private boolean isParkedDown(final View child) {
+		final float[] downFraction = downFractions.get(child);
+		return downFraction != null && downFraction[0] == 1;
+	}
+
+	/**
+	 * Measures a child which matches the size of the coordinator in at least one dimension, using
+	 * the measured size of the coordinator for those dimensions.
+	 *
+	 * @param child
+	 * 		the child to measure, not null
+	 * @param widthMeasureSpec
+	 * 		the width measure spec of the coordinator
+	 * @param heightMeasureSpec
+	 * 		the height measure spec of the coordinator
+	 */
+	private void measureMatchParentChild(final View child, final int widthMeasureSpec,
+			final int heightMeasureSpec) {
+		final MarginLayoutParams params = (MarginLayoutParams) child.getLayoutParams();
+		final int horizontalSpace = getPaddingLeft() + getPaddingRight() + params.leftMargin +
+				params.rightMargin;
+		final int verticalSpace = getPaddingTop() + getPaddingBottom() + params.topMargin +
+				params.bottomMargin;
+
+		final int childWidthMeasureSpec = params.width == LayoutParams.MATCH_PARENT ?
+				MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredWidth() - horizontalSpace),
+						MeasureSpec.EXACTLY) :
+				getChildMeasureSpec(widthMeasureSpec, horizontalSpace, params.width);
+
+		final int childHeightMeasureSpec = params.height == LayoutParams.MATCH_PARENT ?
+				MeasureSpec.makeMeasureSpec(Math.max(0, getMeasuredHeight() - verticalSpace),
+						MeasureSpec.EXACTLY) :
+				getChildMeasureSpec(heightMeasureSpec, verticalSpace, params.height);
+
+		child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+	}
+
+	/**
+	 * Measures and lays out a child which was skipped by {@link #onMeasure(int, int)} and {@link
+	 * #onLayout(boolean, int, int, int, int)} because it was parked in the down position, using
+	 * the specs of the most recent measure pass. The child only does any work if the specs have
+	 * changed since it was last measured, its position has changed or it has requested a layout.
+	 *
+	 * @param child
+	 * 		the child to measure, not null
+	 */
+	private void measureParkedChild(final View child) {
+		if (!measuredOnce || child.getParent() != this || child.getVisibility() == GONE) {
+			return;
+		}
+
+		measureSkippedChild(child);
+		layoutChild(child, getWidth(), getHeight());
+	}
+
+	/**
+	 * Measures a child using the specs of the most recent measure pass, in the same way as {@link
+	 * #onMeasure(int, int)} measures the children it does not skip.
+	 *
+	 * @param child
+	 * 		the child to measure, not null
+	 */
+	private void measureSkippedChild(final View child) {
+		final MarginLayoutParams params = (MarginLayoutParams) child.getLayoutParams();
+		final boolean sizeKnown = MeasureSpec.getMode(lastWidthMeasureSpec) == MeasureSpec
+				.EXACTLY && MeasureSpec.getMode(lastHeightMeasureSpec) == MeasureSpec.EXACTLY;
+
+		if (!sizeKnown && (params.width == LayoutParams.MATCH_PARENT ||
+				params.height == LayoutParams.MATCH_PARENT)) {
+			measureMatchParentChild(child, lastWidthMeasureSpec, lastHeightMeasureSpec);
+		} else {
+			measureChildWithMargins(child, lastWidthMeasureSpec, 0, lastHeightMeasureSpec, 0);
+		}
+	}
+
+	/**
+	 * Lays out a child at its measured size, positioned within the padding of the coordinator
+	 * using its gravity and margins in the same way as FrameLayout.
+	 *
+	 * @param child
+	 * 		the child to lay out, not null
+	 * @param width
+	 * 		the width of the coordinator
+	 * @param height
+	 * 		the height of the coordinator
+	 */
+	private void layoutChild(final View child, final int width, final int height) {
+		final LayoutParams params = (LayoutParams) child.getLayoutParams();
+		final int childWidth = child.getMeasuredWidth();
+		final int childHeight = child.getMeasuredHeight();
+
+		final int gravity = params.gravity == -1 ? DEFAULT_CHILD_GRAVITY : params.gravity;
+		final int horizontalGravity = GravityCompat.getAbsoluteGravity(gravity,
+				ViewCompat.getLayoutDirection(this)) & Gravity.HORIZONTAL_GRAVITY_MASK;
+		final int verticalGravity = gravity & Gravity.VERTICAL_GRAVITY_MASK;
+
+		final int parentLeft = getPaddingLeft();
+		final int parentRight = width - getPaddingRight();
+		final int parentTop = getPaddingTop();
+		final int parentBottom = height - getPaddingBottom();
+
+		final int childLeft;
+
+		switch (horizontalGravity) {
+			case Gravity.CENTER_HORIZONTAL:
+				childLeft = parentLeft + ((parentRight - parentLeft - childWidth) / 2) +
+						params.leftMargin - params.rightMargin;
+				break;
+			case Gravity.RIGHT:
+				childLeft = parentRight - childWidth - params.rightMargin;
+				break;
+			default:
+				childLeft = parentLeft + params.leftMargin;
+		}
+
+		final int childTop;
+
+		switch (verticalGravity) {
+			case Gravity.CENTER_VERTICAL:
+				childTop = parentTop + ((parentBottom - parentTop - childHeight) / 2) +
+						params.topMargin - params.bottomMargin;
+				break;
+			case Gravity.BOTTOM:
+				childTop = parentBottom - childHeight - params.bottomMargin;
+				break;
+			default:
+				childTop = parentTop + params.topMargin;
+		}
+
+		child.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
+	}
+
+	/**
+	 * Determines whether or not the View of the supplied VertigoView is already registered, either
+	 * directly or through a PlainVertigoView.
+	 *
+	 * @param view
+	 * 		the view to check, not null
+	 * @return true if the view is registered, false otherwise
+	 */
+	private boolean isRegistered(final VertigoView view) {
+		final View androidView = asView(view);
+
+		for (final VertigoView registeredView : allViews.values()) {
+			if (registeredView == view || asView(registeredView) == androidView) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the View which is moved for a registered VertigoView. PlainVertigoViews are
+	 * unwrapped, and all other VertigoViews are Views themselves.
+	 *
+	 * @param view
+	 * 		the registered view, not null
+	 * @return the View to move, not null
+	 */
+	private static View asView(final VertigoView view) {
+		if (view instanceof PlainVertigoView) {
+			return ((PlainVertigoView) view).getView();
+		} else {
+			return (View) view;
+		}
+	}
+
+	/**
+	 * Registers an added child again if it was removed while weak registration was enabled and its
+	 * key has not been reused. The child is restored to the position it had when it was removed,
+	 * and keeps its state unless it was active and another view has become active since. The child
+	 * stays at the index it was added at, any running transition is left alone, and the active
+	 * view listeners are not notified. Registrations of garbage collected views are discarded.
+	 *
+	 * @param child
+	 * 		the added child, not null
+	 */
+	private void restoreRemovedRegistration(final VertigoView child) {
+		final Iterator<Map.Entry<String, RemovedRegistration>> iterator = removedViews.entrySet()
+				.iterator();
+
+		while (iterator.hasNext()) {
+			final Map.Entry<String, RemovedRegistration> entry = iterator.next();
+			final VertigoView removedView = entry.getValue().view.get();
+
+			if (removedView == null) {
+				iterator.remove();
+			} else if (removedView == child) {
+				iterator.remove();
+
+				if (!allViews.containsKey(entry.getKey()) && !allViews.containsValue(child)) {
+					final boolean otherViewActive = getActiveKey() != null;
+
+					final boolean up = entry.getValue().up;
+
+					registerViewForCoordination(child, entry.getKey());
+
+					if (!up) {
+						viewsInUpPosition.remove(child);
+					}
+
+					applyTransitionSpec((View) child, up ? 0 : 1);
+
+					if (child.getCurrentState() == ACTIVE && otherViewActive) {
+						child.onStateChanged(INACTIVE);
+					}
+
+					updateAccessibility();
+					publishSnapshot();
+				}
+
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return the key of the active view, null if no registered view is active
+	 */
+	private String getActiveKey() {
+		for (final Map.Entry<String, VertigoView> entry : allViews.entrySet()) {
+			if (entry.getValue().getCurrentState() == ACTIVE) {
+				return entry.getKey();
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Resolves a key to a view in this coordinator. If the key is not registered directly it is
+	 * treated as a hierarchical key, and the views it refers to in nested coordinators are added
+	 * to the supplied list, from the outermost to the innermost.
+	 *
+	 * @param key
+	 * 		the key to resolve, not null
+	 * @param nestedActivations
+	 * 		the list to add the nested views to, not null
+	 * @return the view in this coordinator which the key refers to, null if the key cannot be
+	 * resolved
+	 */
+	private VertigoView resolveKey(final String key,
+			final List<NestedActivation> nestedActivations) {
+		checkNotNull(key, "key cannot be null.");
+
+		if (allViews.containsKey(key)) {
+			return allViews.get(key);
+		}
+
+		// Keys may contain the separator, so try every possible split from the left
+		int separatorIndex = key.indexOf(KEY_SEPARATOR);
+
+		while (separatorIndex != -1) {
+			final VertigoView hostView = allViews.get(key.substring(0, separatorIndex));
+			final String remainingKey = key.substring(separatorIndex + KEY_SEPARATOR.length());
+
+			if (hostView != null) {
+				final List<SimpleVertigoCoordinator> candidates = findNestedCoordinators(
+						asView(hostView));
+
+				for (final SimpleVertigoCoordinator nested : candidates) {
+					final List<NestedActivation> deeperActivations = new ArrayList<>();
+					final VertigoView nestedView = nested.resolveKey(remainingKey,
+							deeperActivations);
+
+					if (nestedView != null) {
+						nestedActivations.add(new NestedActivation(this, hostView, nested,
+								nestedView));
+						nestedActivations.addAll(deeperActivations);
+
+						return hostView;
+					}
+				}
+			}
+
+			separatorIndex = key.indexOf(KEY_SEPARATOR, separatorIndex + 1);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Finds the outermost SimpleVertigoCoordinators contained within a view. Coordinators nested
+	 * within other coordinators are not returned.
+	 *
+	 * @param root
+	 * 		the view to search, not null
+	 * @return the coordinators, in breadth first order, not null
+	 */
+	private static List<SimpleVertigoCoordinator> findNestedCoordinators(final View root) {
+		final List<SimpleVertigoCoordinator> coordinators = new ArrayList<>();
+		final LinkedList<View> viewsToSearch = new LinkedList<>();
+		viewsToSearch.add(root);
+
+		while (!viewsToSearch.isEmpty()) {
+			final View view = viewsToSearch.removeFirst();
+
+			if (view instanceof SimpleVertigoCoordinator) {
+				coordinators.add((SimpleVertigoCoordinator) view);
+			} else if (view instanceof ViewGroup) {
+				final ViewGroup viewGroup = (ViewGroup) view;
+
+				for (int i = 0; i < viewGroup.getChildCount(); i++) {
+					viewsToSearch.add(viewGroup.getChildAt(i));
+				}
+			}
+		}
+
+		return coordinators;
+	}
+
+	/**
+	 * Determines whether or not this coordinator or any of the supplied nested coordinators are
+	 * currently running a transition.
+	 *
+	 * @param nestedActivations
+	 * 		the nested activations to check, not null
+	 * @return true if any of the coordinators is busy, false otherwise
+	 */
+	private boolean isBusy(final List<NestedActivation> nestedActivations) {
+		if (currentAnimationCount.get() != 0) {
+			return true;
+		}
+
+		for (final NestedActivation nestedActivation : nestedActivations) {
+			if (nestedActivation.coordinator.currentAnimationCount.get() != 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Determines whether or not a view and all of the supplied nested views are already active.
+	 *
+	 * @param view
+	 * 		the view in this coordinator, not null
+	 * @param nestedActivations
+	 * 		the nested views, not null
+	 * @return true if all of the views are active, false otherwise
+	 */
+	private static boolean isFullyActive(final VertigoView view,
+			final List<NestedActivation> nestedActivations) {
+		if (view.getCurrentState() != ACTIVE) {
+			return false;
+		}
+
+		for (final NestedActivation nestedActivation : nestedActivations) {
+			if (nestedActivation.view.getCurrentState() != ACTIVE) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Adjusts a transition duration for the supplied quality.
+	 *
+	 * @param durationMs
+	 * 		the requested duration, measured in milliseconds
+	 * @param quality
+	 * 		the quality to use for the transition, not null
+	 * @return the duration to use, measured in milliseconds
+	 */
+	private static int getDurationForQuality(final int durationMs,
+			final TransitionQuality quality) {
+		final boolean shortened = quality == SHORTENED || quality == LAYERED;
+		return shortened ? Math.max(1, durationMs / 2) : durationMs;
+	}
+
+	/**
+	 * @return the refresh rate of the display, measured in frames per second
+	 */
+	private float getDisplayRefreshRate() {
+		final WindowManager windowManager = (WindowManager) getContext().getSystemService(Context
+				.WINDOW_SERVICE);
+
+		return windowManager == null ? 60 : windowManager.getDefaultDisplay().getRefreshRate();
+	}
+
+	/**
+	 * Brings the supplied child to the front of the drawing order. Unlike {@link
+	 * View#bringToFront()} the children are not reordered, so the change only costs a redraw and
+	 * does not trigger a layout pass. Prior to Lollipop touch events are dispatched in child order
+	 * regardless of the drawing order, so on these versions the child is also moved to the end of
+	 * the child list.
+	 *
+	 * @param child
+	 * 		the child to bring to the front, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code child} is null
+	 */
+	private void bringToFrontOfDrawingOrder(final View child) {
+		checkNotNull(child, "child cannot be null.");
+
+		CoordinatorTrace.beginSection(SECTION_BRING_TO_FRONT);
+
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+			child.bringToFront();
+		}
+
+		raisedViews.remove(child);
+		raisedViews.add(child);
+		drawingOrderInvalid = true;
+
+		invalidate();
+
+		CoordinatorTrace.endSection();
+	}
+
+	/**
+	 * Rebuilds the drawing order so that the raised views are drawn in front of all other
+	 * children. Children which have not been raised retain their relative child order.
+	 *
+	 * @param childCount
+	 * 		the current number of children
+	 */
+	private void rebuildDrawingOrder(final int childCount) {
+		if (drawingOrder.length != childCount) {
+			drawingOrder = new int[childCount];
+		}
+
+		int position = 0;
+
+		for (int i = 0; i < childCount; i++) {
+			if (!raisedViews.contains(getChildAt(i))) {
+				drawingOrder[position++] = i;
+			}
+		}
+
+		for (final View raisedView : raisedViews) {
+			final int index = indexOfChild(raisedView);
+
+			if (index != -1 && position < childCount) {
+				drawingOrder[position++] = index;
+			}
+		}
+
+		drawingOrderInvalid = false;
+	}
+
+	/**
+	 * Determines the band of each child which is not hidden by the opaque views drawn in front of
+	 * it, and records the lower bound of the band in {@link #visibleBottoms}. From API 21 the
+	 * framework draws children in order of Z before applying the custom drawing order, so the
+	 * bands cannot be determined if any child has a non-zero Z.
+	 *
+	 * @return true if the bands were recorded, false if children must not be clipped
+	 */
+	private boolean computeVisibleBottoms() {
+		final int childCount = getChildCount();
+
+		if (hasElevatedChild()) {
+			return false;
+		}
+
+		if (visibleBottoms.length != childCount) {
+			visibleBottoms = new int[childCount];
+			clippedChildren = new View[childCount];
+		}
+
+		int coveredFrom = getHeight();
+
+		// Iterate from front to back so that each child is only hidden by the views in front of it
+		for (int position = childCount - 1; position >= 0; position--) {
+			final View child = getChildAt(getChildDrawingOrder(childCount, position));
+
+			visibleBottoms[position] = coveredFrom;
+			clippedChildren[position] = child;
+
+			if (coversToBottom(child)) {
+				coveredFrom = Math.min(coveredFrom, Math.max(0, (int) Math.ceil(child.getY())));
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Determines whether or not any child has a non-zero Z, which changes the order the children
+	 * are drawn in.
+	 *
+	 * @return true if any child is elevated or translated in Z, false otherwise
+	 */
+	@TargetApi(21) // For lint
+	private boolean hasElevatedChild() {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+			return false;
+		}
+
+		for (int i = 0; i < getChildCount(); i++) {
+			if (getChildAt(i).getZ() != 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the y coordinate below which a child is hidden in the current draw pass. Children
+	 * which are not drawn in the recorded order are not clipped.
+	 *
+	 * @param child
+	 * 		the child being drawn, not null
+	 * @return the lower bound of the visible band of the child
+	 */
+	private int findVisibleBottom(final View child) {
+		for (int position = nextClippedChild; position < clippedChildren.length; position++) {
+			if (clippedChildren[position] == child) {
+				nextClippedChild = position + 1;
+				return visibleBottoms[position];
+			}
+		}
+
+		return getHeight();
+	}
+
+	/**
+	 * Determines whether or not a child completely hides everything behind it, from the top of the
+	 * child to the bottom of the coordinator.
+	 *
+	 * @param child
+	 * 		the child to check, not null
+	 * @return true if the child is opaque, untransformed and spans the width of the coordinator
+	 * down to its bottom edge, false otherwise
+	 */
+	private boolean coversToBottom(final View child) {
+		return child.getVisibility() == VISIBLE &&
+				child.getAnimation() == null &&
+				child.isOpaque() &&
+				child.getScaleX() == 1 &&
+				child.getScaleY() == 1 &&
+				child.getRotation() == 0 &&
+				child.getRotationX() == 0 &&
+				child.getRotationY() == 0 &&
+				child.getX() <= 0 &&
+				child.getX() + child.getWidth() >= getWidth() &&
+				child.getY() + child.getHeight() >= getHeight();
+	}
+
+	/**
+	 * Invalidates the horizontal band of the coordinator which is exposed or covered when a view
+	 * moves vertically. Views behind the moving view are clipped to the exposed band while
+	 * animations run, so only the band needs to be redrawn.
+	 *
+	 * @param previousY
+	 * 		the y position of the moving view before it moved
+	 * @param currentY
+	 * 		the y position of the moving view after it moved
+	 */
+	private void invalidateExposedBand(final float previousY, final float currentY) {
+		final int top = (int) Math.floor(Math.min(previousY, currentY));
+		final int bottom = (int) Math.ceil(Math.max(previousY, currentY));
+
+		invalidate(0, Math.max(0, top), getWidth(), Math.min(getHeight(), bottom + 1));
+	}
+
+	/**
+	 * Applies the current transition spec to a view, and invalidates the parts of the coordinator
+	 * which are affected by the change.
+	 *
+	 * @param view
+	 * 		the view to modify, not null
+	 * @param downFraction
+	 * 		how far the view is through the transition, where 0 is the up position and 1 is the down
+	 * 		position
+	 */
+	private void applyTransitionSpec(final View view, final float downFraction) {
+		final float[] storedFraction = downFractions.get(view);
+
+		if (storedFraction != null) {
+			storedFraction[0] = downFraction;
+		}
+
+		final float previousY = view.getY();
+
+		transitionSpec.applyTransition(view, downFraction);
+
+		if (view.getY() != previousY) {
+			invalidateExposedBand(previousY, view.getY());
+		} else {
+			// The spec changed something other than position, which may affect the whole area
+			invalidate();
+		}
+	}
+
+	/**
+	 * Calls the {@link VertigoView#onStateChanged(VertigoView.State)} method with INACTIVE on every
+	 * view except the supplied view.
+	 *
+	 * @param view
+	 * 		the view to not notify, may be null
+	 */
+	private void notifyOtherViewsOnInactive(final VertigoView view) {
+		for (final VertigoView otherView : allViews.values()) {
+			if (otherView != view) {
+				otherView.onStateChanged(INACTIVE);
+			}
+		}
+	}
+
+	/**
+	 * Hides every inactive view from accessibility services and exposes every active view, so
+	 * that services do not walk the node trees of panels which cannot be seen. The framework
+	 * notifies accessibility services when the importance of a view changes, so no events are
+	 * sent here.
+	 */
+	private void updateAccessibility() {
+		for (final VertigoView view : allViews.values()) {
+			if (view.getCurrentState() == ACTIVE) {
+				exposeToAccessibility(asView(view));
+			} else {
+				hideFromAccessibility(asView(view));
+			}
+		}
+	}
+
+	/**
+	 * Hides a view and its descendants from accessibility services. Before API 19 descendants
+	 * cannot be hidden, so only the view itself is hidden. Has no effect if the view is already
+	 * hidden.
+	 *
+	 * @param view
+	 * 		the view to hide, not null
+	 */
+	private void hideFromAccessibility(final View view) {
+		if (hiddenFromAccessibility.containsKey(view)) {
+			return;
+		}
+
+		hiddenFromAccessibility.put(view, ViewCompat.getImportantForAccessibility(view));
+
+		// ViewCompat falls back to IMPORTANT_FOR_ACCESSIBILITY_NO where necessary
+		ViewCompat.setImportantForAccessibility(view,
+				ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS);
+	}
+
+	/**
+	 * Restores the accessibility importance a view had before it was hidden. Has no effect if the
+	 * view is not hidden.
+	 *
+	 * @param view
+	 * 		the view to expose, not null
+	 */
+	private void exposeToAccessibility(final View view) {
+		final Integer originalImportance = hiddenFromAccessibility.remove(view);
+
+		if (originalImportance != null) {
+			ViewCompat.setImportantForAccessibility(view, originalImportance);
+		}
+	}
+
+	/**
+	 * A single change of the active view. Either the views in front of the new active view are
+	 * moved down, or the new active view is moved up. Transitions do not animate themselves,
+	 * instead they are driven by a {@link TransitionRunner}.
+	 */
+	private class Transition {
+		/**
+		 * The view which becomes active when the transition completes.
+		 */
+		private final VertigoView activeView;
+
+		/**
+		 * Whether or not the active view moves up during the transition. If false, the views in
+		 * front of it move down instead.
+		 */
+		private final boolean activeViewMovesUp;
+
+		/**
+		 * The views which move down during the transition. Empty if the active view moves up.
+		 */
+		private final List<VertigoView> viewsToMoveDown = new ArrayList<>();
+
+		/**
+		 * The listener to call when the transition completes, may be null.
+		 */
+		private final ActiveViewChangedListener listener;
+
+		/**
+		 * The views which were put into hardware layers for the duration of the transition.
+		 */
+		private final List<View> layeredViews = new ArrayList<>();
+
+		/**
+		 * Whether or not the transition was begun with animation.
+		 */
+		private boolean animated = false;
+
+		/**
+		 * Constructs a new Transition. The views to move are determined from the current up
+		 * position of the views.
+		 *
+		 * @param activeView
+		 * 		the view to make active, not null
+		 * @param listener
+		 * 		the listener to call when the transition completes, may be null
+		 */
+		public Transition(final VertigoView activeView, final ActiveViewChangedListener listener) {
+			this.activeView = checkNotNull(activeView, "activeView cannot be null.");
+			this.listener = listener;
+
+			activeViewMovesUp = !viewsInUpPosition.contains(activeView);
+
+			if (!activeViewMovesUp) {
+				viewsToMoveDown.addAll(viewsInUpPosition);
+				viewsToMoveDown.remove(activeView);
+			}
+		}
+
+		/**
+		 * Prepares the views for the transition.
+		 *
+		 * @param quality
+		 * 		the quality to use for the transition, null if the transition is not animated
+		 */
+		public void begin(final TransitionQuality quality) {
+			if (activeViewMovesUp) {
+				// The view was skipped while parked, so it may not match the current specs
+				if (isParkedDown(asView(activeView))) {
+					measureParkedChild(asView(activeView));
+				}
+
+				bringToFrontOfDrawingOrder(asView(activeView));
+
+				// The view is shown again, so its snapshot would be out of date before it is used
+				pendingSnapshots.remove(activeView);
+			} else {
+				for (final VertigoView view : viewsToMoveDown) {
+					scheduleSnapshot(view);
+				}
+			}
+
+			usePlaceholderIfNotReady(activeView);
+
+			if (quality != null) {
+				animated = true;
+				CoordinatorTrace.onSlideStarted();
+
+				// The moving views are exposed again in one batch when the transition finishes
+				hideFromAccessibility(asView(activeView));
+
+				for (final VertigoView view : viewsToMoveDown) {
+					hideFromAccessibility(asView(view));
+				}
+
+				if (activeViewMovesUp) {
+					acquireHardwareLayer(asView(activeView), quality);
+				} else {
+					for (final VertigoView view : viewsToMoveDown) {
+						acquireHardwareLayer(asView(view), quality);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Moves the views to the positions for the supplied fraction of the transition.
+		 *
+		 * @param fraction
+		 * 		how far through the transition the views should be, where 0 is the start and 1 is the
+		 * 		end
+		 */
+		public void apply(final float fraction) {
+			if (activeViewMovesUp) {
+				applyTransitionSpec(asView(activeView), 1 - fraction);
+			} else {
+				for (int i = 0; i < viewsToMoveDown.size(); i++) {
+					applyTransitionSpec(asView(viewsToMoveDown.get(i)), fraction);
+				}
+			}
+		}
+
+		/**
+		 * Moves the views to their final positions, records the new positions and delivers the
+		 * state change callbacks.
+		 */
+		public void finish() {
+			apply(1);
+			releaseHardwareLayers();
+
+			if (animated) {
+				animated = false;
+				CoordinatorTrace.onSlideEnded();
+			}
+
+			CoordinatorTrace.beginSection(SECTION_STATE_CHANGED);
+
+			try {
+				if (activeViewMovesUp) {
+					activeView.onStateChanged(ACTIVE);
+
+					// Never track views which were unregistered while the transition was running
+					if (allViews.containsValue(activeView)) {
+						viewsInUpPosition.add(activeView);
+					}
+
+					notifyOtherViewsOnInactive(activeView);
+				} else {
+					for (final VertigoView view : viewsToMoveDown) {
+						view.onStateChanged(INACTIVE);
+						viewsInUpPosition.remove(view);
+					}
+
+					activeView.onStateChanged(ACTIVE);
+				}
+			} finally {
+				CoordinatorTrace.endSection();
+			}
+
+			updateAccessibility();
+			publishSnapshot();
+
+			// Notified after publishing, so that listeners which read the snapshot see the change
+			dispatchActiveViewChanged(listener, activeView);
+			replaceInflationStandIns();
+		}
+
+		/**
+		 * @return the coordinator which the transition belongs to, not null
+		 */
+		public SimpleVertigoCoordinator getCoordinator() {
+			return SimpleVertigoCoordinator.this;
+		}
+
+		/**
+		 * Puts the supplied view into a hardware layer if the current transition spec or the
+		 * transition quality requests it, and the view isn't already using a layer.
+		 *
+		 * @param view
+		 * 		the view to put into a layer, not null
+		 * @param quality
+		 * 		the quality to use for the transition, not null
+		 */
+		private void acquireHardwareLayer(final View view, final TransitionQuality quality) {
+			final boolean layerRequested = quality == LAYERED ||
+					transitionSpec.shouldUseHardwareLayer(view);
+
+			if (layerRequested && view.getLayerType() == LAYER_TYPE_NONE) {
+				view.setLayerType(LAYER_TYPE_HARDWARE, null);
+				layeredViews.add(view);
+			}
+		}
+
+		/**
+		 * Removes the hardware layers added by {@link #acquireHardwareLayer(View,
+		 * TransitionQuality)}.
+		 */
+		private void releaseHardwareLayers() {
+			for (final View view : layeredViews) {
+				view.setLayerType(LAYER_TYPE_NONE, null);
+			}
+
+			layeredViews.clear();
+		}
+
+		/**
+		 * Releases the resources of the transition without moving the views to their final
+		 * positions or delivering any callbacks.
+		 */
+		public void abandon() {
+			releaseHardwareLayers();
+
+			if (animated) {
+				animated = false;
+				CoordinatorTrace.onSlideEnded();
+			}
+
+			updateAccessibility();
+			replaceInflationStandIns();
+		}
+	}
+
+	/**
+	 * An activation request which is waiting for a layout to be inflated.
+	 */
+	private static class WaitingActivation {
+		/**
+		 * Whether or not the transition should be animated.
+		 */
+		private final boolean animate;
+
+		/**
+		 * The listener to call when the view becomes active, may be null.
+		 */
+		private final ActiveViewChangedListener listener;
+
+		/**
+		 * The handle to report the outcome to, may be null.
+		 */
+		private final TransitionHandle handle;
+
+		/**
+		 * Constructs a new WaitingActivation.
+		 *
+		 * @param animate
+		 * 		whether or not the transition should be animated
+		 * @param listener
+		 * 		the listener to call when the view becomes active, may be null
+		 * @param handle
+		 * 		the handle to report the outcome to, may be null
+		 */
+		public WaitingActivation(final boolean animate, final ActiveViewChangedListener listener,
+				final TransitionHandle handle) {
+			this.animate = animate;
+			this.listener = listener;
+			this.handle = handle;
+		}
+	}
+
+	/**
+	 * The registration of a child which was removed while weak registration was enabled.
+	 */
+	private static class RemovedRegistration {
+		/**
+		 * The removed child, referenced weakly so that it can be garbage collected.
+		 */
+		private final WeakReference<VertigoView> view;
+
+		/**
+		 * Whether or not the child was in the up position when it was removed.
+		 */
+		private final boolean up;
+
+		/**
+		 * Constructs a new RemovedRegistration.
+		 *
+		 * @param view
+		 * 		the removed child, not null
+		 * @param up
+		 * 		whether or not the child was in the up position when it was removed
+		 */
+		public RemovedRegistration(final VertigoView view, final boolean up) {
+			this.view = new WeakReference<>(view);
+			this.up = up;
+		}
+	}
+
+	/**
+	 * A view in a nested coordinator which should be made active along with a view in an outer
+	 * coordinator.
+	 */
+	private static class NestedActivation {
 		/**
-		 * The callback to trigger.
+		 * The coordinator which contains the view hosting the nested coordinator.
 		 */
-		private final ActiveViewChangedListener listener;
+		private final SimpleVertigoCoordinator hostCoordinator;
 
 		/**
-		 * The view to pass to the callback
+		 * The view which contains the nested coordinator.
 		 */
-		private final VertigoView activeView;
+		private final VertigoView hostView;
+
+		/**
+		 * The nested coordinator.
+		 */
+		private final SimpleVertigoCoordinator coordinator;
+
+		/**
+		 * The view in the nested coordinator to make active.
+		 */
+		private final VertigoView view;
+
+		/**
+		 * Constructs a new NestedActivation.
+		 *
+		 * @param hostCoordinator
+		 * 		the coordinator which contains the host view, not null
+		 * @param hostView
+		 * 		the view which contains the nested coordinator, not null
+		 * @param coordinator
+		 * 		the nested coordinator, not null
+		 * @param view
+		 * 		the view in the nested coordinator to make active, not null
+		 */
+		public NestedActivation(final SimpleVertigoCoordinator hostCoordinator,
+				final VertigoView hostView, final SimpleVertigoCoordinator coordinator,
+				final VertigoView view) {
+			this.hostCoordinator = checkNotNull(hostCoordinator, "hostCoordinator cannot be null.");
+			this.hostView = checkNotNull(hostView, "hostView cannot be null.");
+			this.coordinator = checkNotNull(coordinator, "coordinator cannot be null.");
+			this.view = checkNotNull(view, "view cannot be null.");
+		}
+	}
+
+	/**
+	 * A single step to be played by a {@link TransitionRunner}.
+	 */
+	private static class RunnerStep {
+		/**
+		 * The key which the step was requested with.
+		 */
+		private final String key;
+
+		/**
+		 * The view to make active.
+		 */
+		private final VertigoView view;
+
+		/**
+		 * The views in nested coordinators to make active along with the view, from the outermost
+		 * to the innermost.
+		 */
+		private final List<NestedActivation> nestedActivations;
+
+		/**
+		 * The length of time to use for the transition, measured in milliseconds. Zero if the
+		 * transition is not animated.
+		 */
+		private final int durationMs;
+
+		/**
+		 * The length of time to wait after the transition before starting the next step, measured
+		 * in milliseconds.
+		 */
+		private final int dwellMs;
 
 		/**
-		 * The current number of notifications received.
+		 * The listener to call when the step completes, may be null.
 		 */
-		private final AtomicInteger notificationCount = new AtomicInteger(0);
+		private final ActiveViewChangedListener listener;
 
 		/**
-		 * Constructs a new Consolidator. The provided values cannot be changed after instantiation.
-		 * No notification will ever be delivered if zero is supplied for the triggerCount.
+		 * Constructs a new RunnerStep.
 		 *
-		 * @param triggerCount
-		 * 		the number of notifications to wait for before delivering the callback
+		 * @param key
+		 * 		the key which the step was requested with, not null
+		 * @param view
+		 * 		the view to make active, not null
+		 * @param nestedActivations
+		 * 		the views in nested coordinators to make active along with the view, not null
+		 * @param durationMs
+		 * 		the length of time to use for the transition, measured in milliseconds
+		 * @param dwellMs
+		 * 		the length of time to wait before the next step, measured in milliseconds
 		 * @param listener
-		 * 		the listener to deliver the callback to when triggered
-		 * @param activeView
-		 * 		the view to pass to the callback
+		 * 		the listener to call when the step completes, may be null
 		 */
-		public Consolidator(final int triggerCount, final ActiveViewChangedListener listener,
-				final VertigoView activeView) {
-			this.triggerCount = triggerCount;
+		public RunnerStep(final String key, final VertigoView view,
+				final List<NestedActivation> nestedActivations, final int durationMs,
+				final int dwellMs, final ActiveViewChangedListener listener) {
+			this.key = checkNotNull(key, "key cannot be null.");
+			this.view = checkNotNull(view, "view cannot be null.");
+			this.nestedActivations = checkNotNull(nestedActivations,
+					"nestedActivations cannot be null.");
+			this.durationMs = durationMs;
+			this.dwellMs = dwellMs;
 			this.listener = listener;
-			this.activeView = activeView;
+		}
+	}
+
+	/**
+	 * Plays one or more transitions back to back on a single timeline. All steps are driven by one
+	 * animator, and when a step ends the next step begins within the same frame, so no frames are
+	 * lost between steps. The views to move for each step are determined when the step begins. The
+	 * transitions of nested coordinators in a step are driven by the same animator.
+	 */
+	private class TransitionRunner {
+		/**
+		 * The steps to play, in order.
+		 */
+		private final List<RunnerStep> steps;
+
+		/**
+		 * The handle to report progress and the outcome to, may be null.
+		 */
+		private final TransitionHandle handle;
+
+		/**
+		 * The quality to use when animating the transitions.
+		 */
+		private final TransitionQuality quality;
+
+		/**
+		 * The easing applied to every step. Captured when the runner is created so that changing
+		 * the easing of the coordinator does not affect a running transition.
+		 */
+		private final TransitionEasing easing = transitionEasing;
+
+		/**
+		 * The position of the start of each step on the timeline, measured in milliseconds.
+		 */
+		private final long[] stepStartsMs;
+
+		/**
+		 * The total length of the timeline, measured in milliseconds. The dwell time of the final
+		 * step is not included, since nothing follows it.
+		 */
+		private final long totalDurationMs;
+
+		/**
+		 * The index of the next step to begin.
+		 */
+		private int nextStepIndex = 0;
+
+		/**
+		 * The transitions of the step which is currently playing, from the outermost coordinator
+		 * to the innermost. Empty if no step is playing.
+		 */
+		private final List<Transition> currentTransitions = new ArrayList<>();
+
+		/**
+		 * The position of the end of the current step on the timeline, measured in milliseconds.
+		 */
+		private long currentStepEndMs;
+
+		/**
+		 * The animator which drives the timeline, null if the timeline is not animated or is
+		 * driven by the shared scheduler.
+		 */
+		private ValueAnimator animator;
+
+		/**
+		 * Receives frames from the shared scheduler, null if the timeline is not driven by the
+		 * shared scheduler.
+		 */
+		private TransitionScheduler.Client schedulerClient;
+
+		/**
+		 * Whether or not the timeline is animated.
+		 */
+		private boolean animated = false;
+
+		/**
+		 * Whether or not the timeline has ended.
+		 */
+		private boolean ended = false;
+
+		/**
+		 * Whether or not the remaining steps should be discarded instead of completed when the
+		 * timeline ends.
+		 */
+		private boolean abandoned = false;
+
+		/**
+		 * Whether or not this runner currently blocks other transitions from starting.
+		 */
+		private boolean holdingCoordinator = false;
+
+		/**
+		 * The time at which the views were last updated, measured in milliseconds. -1 if the views
+		 * have not been updated yet.
+		 */
+		private long lastUpdateTimeMs = -1;
+
+		/**
+		 * The outcome to report when the runner ends.
+		 */
+		private TransitionHandle.Outcome outcome = COMPLETED;
+
+		/**
+		 * Constructs a new TransitionRunner.
+		 *
+		 * @param steps
+		 * 		the steps to play in order, not null, not empty
+		 * @param handle
+		 * 		the handle to report progress and the outcome to, may be null
+		 * @param quality
+		 * 		the quality to use when animating the transitions, not null
+		 */
+		public TransitionRunner(final List<RunnerStep> steps, final TransitionHandle handle,
+				final TransitionQuality quality) {
+			this.steps = checkNotNull(steps, "steps cannot be null.");
+			this.handle = handle;
+			this.quality = checkNotNull(quality, "quality cannot be null.");
+
+			stepStartsMs = new long[steps.size()];
+
+			long positionMs = 0;
+
+			for (int i = 0; i < steps.size(); i++) {
+				stepStartsMs[i] = positionMs;
+				positionMs += steps.get(i).durationMs + steps.get(i).dwellMs;
+			}
+
+			final RunnerStep lastStep = steps.get(steps.size() - 1);
+			totalDurationMs = stepStartsMs[steps.size() - 1] + lastStep.durationMs;
+		}
+
+		/**
+		 * Starts playing the steps. If the timeline has no duration, all steps complete before this
+		 * method returns.
+		 */
+		public void run() {
+			holdingCoordinator = true;
+			currentRunner = this;
+			currentAnimationCount.incrementAndGet();
+			publishSnapshot();
+
+			if (totalDurationMs == 0) {
+				advanceTo(0);
+				releaseCoordinator();
+				reportOutcome();
+				return;
+			}
+
+			animated = true;
+
+			if (sharedSchedulerEnabled) {
+				schedulerClient = createSchedulerClient();
+			} else {
+				animator = createAnimator();
+			}
+
+			if (handle != null) {
+				handle.setCancelAction(new Runnable() {
+					@Override
+					public void run() {
+						end(CANCELLED);
+					}
+				});
+			}
+
+			if (adaptiveQualityEnabled) {
+				qualityController.onTransitionStarted(getDisplayRefreshRate());
+			}
+
+			if (schedulerClient != null) {
+				TransitionScheduler.getInstance().schedule(schedulerClient);
+			} else {
+				animator.start();
+			}
+		}
+
+		/**
+		 * Ends the runner immediately by playing all remaining steps without animation. The state
+		 * changes and callbacks are delivered before this method returns.
+		 *
+		 * @param outcome
+		 * 		the outcome to report, not null
+		 */
+		public void end(final TransitionHandle.Outcome outcome) {
+			if (animator != null) {
+				this.outcome = outcome;
+
+				// Calls onAnimationEnd, which jumps to the end and completes the remaining steps
+				animator.cancel();
+			} else if (schedulerClient != null && !ended) {
+				this.outcome = outcome;
+
+				TransitionScheduler.getInstance().unschedule(schedulerClient);
+				onTimelineEnd();
+			}
+		}
+
+		/**
+		 * Ends the runner immediately without completing the current or remaining steps. The views
+		 * are left where they are, and the handle reports {@link
+		 * TransitionHandle.Outcome#SUPERSEDED}. Used when the state of the coordinator is about to
+		 * be replaced.
+		 */
+		public void abandon() {
+			abandoned = true;
+			end(SUPERSEDED);
+		}
+
+		/**
+		 * Creates an animator which drives the timeline.
+		 *
+		 * @return the animator, not null
+		 */
+		private ValueAnimator createAnimator() {
+			final ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
+			animator.setDuration(totalDurationMs);
+			animator.setInterpolator(new LinearInterpolator());
+
+			animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+				@Override
+				public void onAnimationUpdate(final ValueAnimator valueAnimator) {
+					onFrame(valueAnimator.getAnimatedFraction());
+				}
+			});
+
+			animator.addListener(new AnimatorListenerAdapter() {
+				@Override
+				public void onAnimationEnd(final Animator animation) {
+					// If the animation was cancelled, jump to the end so that the state stays valid
+					onTimelineEnd();
+				}
+			});
+
+			return animator;
+		}
+
+		/**
+		 * Creates a client which drives the timeline from the frames of the shared scheduler. The
+		 * duration is scaled by the animator duration scale, as a ValueAnimator would do.
+		 *
+		 * @return the client, not null
+		 */
+		private TransitionScheduler.Client createSchedulerClient() {
+			final float scaledDurationMs = totalDurationMs * getAnimatorDurationScale();
+
+			return new TransitionScheduler.Client() {
+				/**
+				 * The time of the first frame, measured in milliseconds. -1 until the first frame.
+				 */
+				private long startTimeMs = -1;
+
+				@Override
+				public boolean onFrame(final long frameTimeMs) {
+					if (startTimeMs == -1) {
+						startTimeMs = frameTimeMs;
+					}
+
+					final float fraction = Math.min(1, (frameTimeMs - startTimeMs) /
+							Math.max(1, scaledDurationMs));
+
+					if (fraction < 1) {
+						TransitionRunner.this.onFrame(fraction);
+						return false;
+					} else {
+						onTimelineEnd();
+						return true;
+					}
+				}
+			};
+		}
+
+		/**
+		 * Called when the timeline ends, either because it reached the end or because it was
+		 * ended early. Any remaining steps are completed without animation.
+		 */
+		private void onTimelineEnd() {
+			ended = true;
+
+			if (abandoned) {
+				discardRemainingSteps();
+			}
+
+			advanceTo(totalDurationMs);
+			releaseCoordinator();
+
+			// Redraw without clipping once the coordinator is at rest
+			invalidate();
+
+			reportOutcome();
+		}
+
+		/**
+		 * Called on every frame of the animation. The views are updated unless the update would
+		 * exceed the maximum transition frame rate. Step boundaries are always processed.
+		 *
+		 * @param fraction
+		 * 		how far through the timeline the runner is, where 0 is the start and 1 is the end
+		 */
+		private void onFrame(final float fraction) {
+			final long frameTimeMs = AnimationUtils.currentAnimationTimeMillis();
+			final long positionMs = (long) (fraction * totalDurationMs);
+
+			if (adaptiveQualityEnabled) {
+				qualityController.onTransitionFrame(frameTimeMs);
+			}
+
+			final boolean frameRateLimited = maxTransitionFrameRate != 0 &&
+					lastUpdateTimeMs != -1 &&
+					frameTimeMs - lastUpdateTimeMs < 1000 / maxTransitionFrameRate;
+
+			final boolean atStepBoundary = currentTransitions.isEmpty() ||
+					positionMs >= currentStepEndMs;
+
+			if (!frameRateLimited || atStepBoundary) {
+				CoordinatorTrace.beginSection(SECTION_FRAME);
+
+				try {
+					advanceTo(positionMs);
+				} finally {
+					CoordinatorTrace.endSection();
+				}
+
+				lastUpdateTimeMs = frameTimeMs;
+			}
+		}
+
+		/**
+		 * Moves the timeline to the supplied position. Steps which end before the position are
+		 * finished, and steps which start before the position are begun.
+		 *
+		 * @param positionMs
+		 * 		the position on the timeline, measured in milliseconds
+		 */
+		private void advanceTo(final long positionMs) {
+			if (handle != null) {
+				handle.setProgress(Math.min(1, (float) positionMs / Math.max(1, totalDurationMs)));
+			}
+
+			while (true) {
+				if (currentTransitions.isEmpty()) {
+					if (nextStepIndex >= steps.size() || positionMs < stepStartsMs[nextStepIndex]) {
+						// Either the runner has finished or it's dwelling between steps
+						return;
+					}
+
+					beginNextStep();
+				} else if (positionMs >= currentStepEndMs) {
+					final boolean lastStep = nextStepIndex >= steps.size();
+
+					// Allow the final callbacks to start new transitions
+					if (lastStep) {
+						releaseCoordinator();
+					}
+
+					finishCurrentTransitions();
+				} else {
+					final RunnerStep step = steps.get(nextStepIndex - 1);
+					final float stepFraction = (float) (positionMs - stepStartsMs[nextStepIndex - 1])
+							/ step.durationMs;
+					final float interpolatedFraction = easing.getInterpolation(stepFraction);
+
+					for (int i = 0; i < currentTransitions.size(); i++) {
+						currentTransitions.get(i).apply(interpolatedFraction);
+					}
+
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Begins the next step. Views in nested coordinators are changed immediately if any of
+		 * their host views are in the down position when the step begins, since only the outer
+		 * movement can be seen. If none of the views for the step need to change, the step is
+		 * skipped.
+		 */
+		private void beginNextStep() {
+			final RunnerStep step = steps.get(nextStepIndex);
+			final int stepIndex = nextStepIndex++;
+			final TransitionQuality stepQuality = step.durationMs == 0 ? null : quality;
+
+			if (!allViews.containsValue(step.view)) {
+				return;
+			}
+
+			currentStepEndMs = stepStartsMs[stepIndex] + step.durationMs;
+
+			// The listener is called when the outermost view which actually changes is finished
+			ActiveViewChangedListener listener = step.listener;
+
+			if (step.view.getCurrentState() != ACTIVE) {
+				final Transition transition = new Transition(step.view, listener);
+				transition.begin(stepQuality);
+				currentTransitions.add(transition);
+				listener = null;
+			}
+
+			boolean hidden = false;
+
+			for (final NestedActivation nested : step.nestedActivations) {
+				final boolean hostDown = !nested.hostCoordinator.viewsInUpPosition.contains(
+						nested.hostView);
+				hidden = hidden || hostDown;
+
+				if (nested.view.getCurrentState() == ACTIVE ||
+						!nested.coordinator.allViews.containsValue(nested.view)) {
+					continue;
+				}
+
+				final Transition transition = nested.coordinator.new Transition(nested.view,
+						listener);
+				listener = null;
+
+				if (hidden || stepQuality == null) {
+					transition.begin(null);
+					transition.finish();
+				} else {
+					holdNestedCoordinator(nested.coordinator);
+					transition.begin(stepQuality);
+					currentTransitions.add(transition);
+				}
+			}
+		}
+
+		/**
+		 * Finishes the transitions of the current step, from the innermost coordinator to the
+		 * outermost, so that the outer callbacks observe the final nested state.
+		 */
+		private void finishCurrentTransitions() {
+			final List<Transition> transitions = new ArrayList<>(currentTransitions);
+			currentTransitions.clear();
+
+			for (int i = transitions.size() - 1; i >= 0; i--) {
+				final Transition transition = transitions.get(i);
+				final SimpleVertigoCoordinator coordinator = transition.getCoordinator();
+
+				if (coordinator != SimpleVertigoCoordinator.this) {
+					releaseNestedCoordinator(coordinator);
+				}
+
+				transition.finish();
+			}
+		}
+
+		/**
+		 * Abandons the transitions of the current step and skips all remaining steps.
+		 */
+		private void discardRemainingSteps() {
+			for (int i = currentTransitions.size() - 1; i >= 0; i--) {
+				final Transition transition = currentTransitions.get(i);
+				final SimpleVertigoCoordinator coordinator = transition.getCoordinator();
+
+				if (coordinator != SimpleVertigoCoordinator.this) {
+					releaseNestedCoordinator(coordinator);
+				}
+
+				transition.abandon();
+			}
+
+			currentTransitions.clear();
+			nextStepIndex = steps.size();
+		}
+
+		/**
+		 * Marks a nested coordinator as busy with this runner, so that it cannot start other
+		 * transitions, and so that unregistering its views or hiding it ends this runner in the
+		 * same way as for this coordinator.
+		 *
+		 * @param coordinator
+		 * 		the nested coordinator, not null
+		 */
+		private void holdNestedCoordinator(final SimpleVertigoCoordinator coordinator) {
+			coordinator.currentRunner = this;
+			coordinator.currentAnimationCount.incrementAndGet();
+			coordinator.publishSnapshot();
+		}
+
+		/**
+		 * Releases a nested coordinator which was held by {@link
+		 * #holdNestedCoordinator(SimpleVertigoCoordinator)}.
+		 *
+		 * @param coordinator
+		 * 		the nested coordinator, not null
+		 */
+		private void releaseNestedCoordinator(final SimpleVertigoCoordinator coordinator) {
+			if (coordinator.currentRunner == this) {
+				coordinator.currentRunner = null;
+			}
+
+			coordinator.currentAnimationCount.decrementAndGet();
+			coordinator.publishSnapshot();
+
+			// Redraw without clipping once the nested coordinator is at rest
+			coordinator.invalidate();
+		}
+
+		/**
+		 * Records the outcome of the runner and delivers it to the handle.
+		 */
+		private void reportOutcome() {
+			replaceInflationStandIns();
+			eventLog.record(TRANSITION_FINISHED, steps.get(steps.size() - 1).key, outcome);
+			finishHandle(handle, outcome);
 		}
 
 		/**
-		 * Notifies this consolidator that a view has become inactive. If the number of
-		 * notifications reaches the trigger count, the callback is delivered.
+		 * Allows other transitions to start, and reports the frames of this runner to the quality
+		 * controller. Has no effect if this runner is not holding the coordinator.
 		 */
-		public void notifyMakeViewInactiveComplete() {
-			if (notificationCount.incrementAndGet() == triggerCount && listener != null) {
-				activeView.onStateChanged(ACTIVE);
-				listener.onActiveViewChanged(SimpleVertigoCoordinator.this, activeView);
+		private void releaseCoordinator() {
+			if (holdingCoordinator) {
+				holdingCoordinator = false;
+				currentRunner = null;
+				currentAnimationCount.decrementAndGet();
+				publishSnapshot();
+
+				// Only the dwell times of an instant sequence are animated, so they show nothing
+				if (animated && adaptiveQualityEnabled && quality != INSTANT) {
+					qualityController.onAnimatedTransitionEnded();
+				}
 			}
 		}
 	}
-}
\ No newline at end of file
+}
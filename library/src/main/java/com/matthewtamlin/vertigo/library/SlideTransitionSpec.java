@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.view.View;
+
+/**
+ * A TransitionSpec which slides views vertically. In the down position a view sits directly below
+ * the lower bound of the coordinator. This is the default transition used by the
+ * SimpleVertigoCoordinator.
+ */
+public class SlideTransitionSpec implements TransitionSpec {
+	@Override
+	public void applyTransition(final View view, final float downFraction) {
+		view.setTranslationY(downFraction * view.getHeight());
+	}
+
+	@Override
+	public void clearTransition(final View view) {
+		view.setTranslationY(0);
+	}
+
+	@Override
+	public boolean shouldUseHardwareLayer(final View view) {
+		// Translation is applied when the view is composited, so a layer would not reduce the cost
+		return false;
+	}
+}
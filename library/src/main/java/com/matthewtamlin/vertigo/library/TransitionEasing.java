@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.animation.TimeInterpolator;
+
+import com.matthewtamlin.java_utilities.checkers.IntChecker;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An easing curve for coordinator transitions which is backed by a precomputed lookup table. The
+ * source interpolator is sampled once when the easing is constructed, so each interpolation is a
+ * table read and a linear blend between neighbouring samples regardless of how expensive the
+ * source curve is to evaluate. This makes it practical to use path based curves (such as those
+ * created by {@link android.support.v4.view.animation.PathInterpolatorCompat}). Instances are
+ * immutable and can be shared between coordinators.
+ */
+public final class TransitionEasing implements TimeInterpolator {
+	/**
+	 * The number of samples used when no sample count is supplied.
+	 */
+	private static final int DEFAULT_SAMPLE_COUNT = 129;
+
+	/**
+	 * The sampled values of the source interpolator, evenly spaced over the range 0 to 1
+	 * inclusive.
+	 */
+	private final float[] samples;
+
+	/**
+	 * Constructs a new TransitionEasing using the default number of samples.
+	 *
+	 * @param interpolator
+	 * 		the curve to sample, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code interpolator} is null
+	 */
+	public TransitionEasing(final TimeInterpolator interpolator) {
+		this(interpolator, DEFAULT_SAMPLE_COUNT);
+	}
+
+	/**
+	 * Constructs a new TransitionEasing. Values between samples are linearly blended, so curves
+	 * with sharp changes need more samples to be reproduced faithfully. The first and last samples
+	 * are always exactly 0 and 1, so that transitions begin and end exactly at their start and end
+	 * positions even if the source curve has rounding errors at its end points.
+	 *
+	 * @param interpolator
+	 * 		the curve to sample, not null
+	 * @param sampleCount
+	 * 		the number of samples to take, including both end points, greater than one
+	 * @throws IllegalArgumentException
+	 * 		if {@code interpolator} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code sampleCount} is not greater than one
+	 */
+	public TransitionEasing(final TimeInterpolator interpolator, final int sampleCount) {
+		checkNotNull(interpolator, "interpolator cannot be null.");
+		IntChecker.checkGreaterThan(sampleCount, 1, "sampleCount must be greater than one.");
+
+		samples = new float[sampleCount];
+
+		for (int i = 1; i < sampleCount - 1; i++) {
+			samples[i] = interpolator.getInterpolation((float) i / (sampleCount - 1));
+		}
+
+		samples[0] = 0;
+		samples[sampleCount - 1] = 1;
+	}
+
+	@Override
+	public float getInterpolation(final float input) {
+		if (input <= 0) {
+			return samples[0];
+		}
+
+		final float position = input * (samples.length - 1);
+		final int index = (int) position;
+
+		if (index >= samples.length - 1) {
+			return samples[samples.length - 1];
+		}
+
+		final float blend = position - index;
+
+		return samples[index] + ((samples[index + 1] - samples[index]) * blend);
+	}
+
+	/**
+	 * @return the number of samples in the lookup table
+	 */
+	public int getSampleCount() {
+		return samples.length;
+	}
+}
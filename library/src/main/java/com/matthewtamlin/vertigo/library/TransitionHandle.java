@@ -0,0 +1,287 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Tracks a single request to change the active view of a coordinator. Every request finishes with
+ * exactly one definite outcome, including requests which were dropped without moving any views.
+ * Handles returned by the submit methods of a coordinator may be used from other threads, so
+ * {@link #getProgress()}, {@link #getOutcome()}, {@link #isFinished()}, {@link
+ * #then(CompletionListener)} and {@link #await(long, TimeUnit)} can be called from any thread.
+ * Completion listeners are always called on the main thread. {@link #cancel()} must only be
+ * called from the main thread.
+ */
+public final class TransitionHandle {
+	/**
+	 * Delivers completion listeners which are registered from other threads after the transition
+	 * has finished.
+	 */
+	private static final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * The current progress of the transition, from 0 at the start to 1 at the end.
+	 */
+	private volatile float progress = 0;
+
+	/**
+	 * The outcome of the transition, null until the transition finishes.
+	 */
+	private volatile Outcome outcome = null;
+
+	/**
+	 * The listeners to call when the transition finishes. Cleared once they have been called.
+	 * Guarded by {@link #lock}.
+	 */
+	private final List<CompletionListener> completionListeners = new ArrayList<>();
+
+	/**
+	 * Guards the completion listeners and the transition to the finished state, since listeners
+	 * may be registered from any thread.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Released when the transition finishes.
+	 */
+	private final CountDownLatch finishedLatch = new CountDownLatch(1);
+
+	/**
+	 * Cancels the transition by jumping it to the end, null if the transition cannot be cancelled.
+	 */
+	private Runnable cancelAction = null;
+
+	/**
+	 * Constructs a new TransitionHandle. Only coordinators can create handles.
+	 */
+	TransitionHandle() {}
+
+	/**
+	 * Creates a handle which has already finished.
+	 *
+	 * @param outcome
+	 * 		the outcome of the handle, not null
+	 * @return the handle, not null
+	 */
+	static TransitionHandle createFinished(final Outcome outcome) {
+		final TransitionHandle handle = new TransitionHandle();
+		handle.finish(outcome);
+		return handle;
+	}
+
+	/**
+	 * @return the current progress of the transition, from 0 at the start to 1 at the end
+	 */
+	public float getProgress() {
+		return progress;
+	}
+
+	/**
+	 * @return the outcome of the transition, null if the transition has not finished
+	 */
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return true if the transition has finished, false otherwise
+	 */
+	public boolean isFinished() {
+		return outcome != null;
+	}
+
+	/**
+	 * Cancels the transition by jumping all views to their final positions. The state changes and
+	 * active view callbacks are delivered as normal, and the outcome is {@link Outcome#CANCELLED}.
+	 * A request which is still waiting for its view to be inflated is withdrawn instead, without
+	 * moving any views. Cancelling a transition which has already finished has no effect. This
+	 * method must only be called from the main thread.
+	 */
+	public void cancel() {
+		if (!isFinished() && cancelAction != null) {
+			cancelAction.run();
+		}
+	}
+
+	/**
+	 * Registers a listener to call when the transition finishes. This method can be called from
+	 * any thread. Listeners are always called on the main thread. If the transition has already
+	 * finished, the listener is called immediately when registered on the main thread, and is
+	 * posted to the main thread otherwise.
+	 *
+	 * @param listener
+	 * 		the listener to call, not null
+	 * @return this handle
+	 * @throws IllegalArgumentException
+	 * 		if {@code listener} is null
+	 */
+	public TransitionHandle then(final CompletionListener listener) {
+		checkNotNull(listener, "listener cannot be null.");
+
+		synchronized (lock) {
+			if (!isFinished()) {
+				completionListeners.add(listener);
+				return this;
+			}
+		}
+
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			listener.onTransitionFinished(this, outcome);
+		} else {
+			mainThreadHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					listener.onTransitionFinished(TransitionHandle.this, outcome);
+				}
+			});
+		}
+
+		return this;
+	}
+
+	/**
+	 * Blocks the calling thread until the transition finishes or the timeout elapses. This method
+	 * cannot be called from the main thread, since the transition can only finish on the main
+	 * thread.
+	 *
+	 * @param timeout
+	 * 		the maximum time to wait
+	 * @param unit
+	 * 		the unit of the timeout, not null
+	 * @return the outcome of the transition, null if the timeout elapsed first
+	 * @throws InterruptedException
+	 * 		if the calling thread is interrupted while waiting
+	 * @throws IllegalStateException
+	 * 		if this method is called from the main thread
+	 */
+	public Outcome await(final long timeout, final TimeUnit unit) throws InterruptedException {
+		checkNotNull(unit, "unit cannot be null.");
+
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			throw new IllegalStateException("Cannot await a transition on the main thread.");
+		}
+
+		finishedLatch.await(timeout, unit);
+
+		return outcome;
+	}
+
+	/**
+	 * Sets the action to use when the transition is cancelled.
+	 *
+	 * @param cancelAction
+	 * 		the action, null if the transition cannot be cancelled
+	 */
+	void setCancelAction(final Runnable cancelAction) {
+		this.cancelAction = cancelAction;
+	}
+
+	/**
+	 * Records the current progress of the transition.
+	 *
+	 * @param progress
+	 * 		the progress, from 0 at the start to 1 at the end
+	 */
+	void setProgress(final float progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * Records the outcome of the transition and calls the completion listeners. Only the first
+	 * outcome is recorded, and subsequent calls have no effect.
+	 *
+	 * @param outcome
+	 * 		the outcome of the transition, not null
+	 */
+	void finish(final Outcome outcome) {
+		checkNotNull(outcome, "outcome cannot be null.");
+
+		final List<CompletionListener> listeners;
+
+		synchronized (lock) {
+			if (isFinished()) {
+				return;
+			}
+
+			if (outcome == Outcome.COMPLETED || outcome == Outcome.CANCELLED) {
+				progress = 1;
+			}
+
+			this.outcome = outcome;
+			listeners = new ArrayList<>(completionListeners);
+			completionListeners.clear();
+		}
+
+		cancelAction = null;
+		finishedLatch.countDown();
+
+		// Called outside the lock, so that listeners can safely register further listeners
+		for (final CompletionListener listener : listeners) {
+			listener.onTransitionFinished(this, outcome);
+		}
+	}
+
+	/**
+	 * The possible outcomes of a transition.
+	 */
+	public enum Outcome {
+		/**
+		 * The transition ran to completion, or the requested view was already active.
+		 */
+		COMPLETED,
+
+		/**
+		 * The request was rejected without moving any views, for example because another
+		 * transition was already in progress.
+		 */
+		DROPPED,
+
+		/**
+		 * The transition was abandoned because another operation changed the coordinator first.
+		 */
+		SUPERSEDED,
+
+		/**
+		 * The transition was cancelled and all views jumped to their final positions.
+		 */
+		CANCELLED
+	}
+
+	/**
+	 * A callback to be delivered when a transition finishes.
+	 */
+	public interface CompletionListener {
+		/**
+		 * Called to indicate that a transition has finished.
+		 *
+		 * @param handle
+		 * 		the handle of the transition which finished, not null
+		 * @param outcome
+		 * 		the outcome of the transition, not null
+		 */
+		public void onTransitionFinished(TransitionHandle handle, Outcome outcome);
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+/**
+ * The levels of quality a SimpleVertigoCoordinator can use when transitioning between views. When
+ * adaptive quality is enabled the coordinator steps down through the levels if its transitions
+ * drop frames, and steps back up when performance recovers.
+ */
+public enum TransitionQuality {
+	/**
+	 * Transitions use the configured transition spec and duration.
+	 */
+	FULL,
+
+	/**
+	 * Transitions use the configured transition spec at half the configured duration.
+	 */
+	SHORTENED,
+
+	/**
+	 * Transitions use the configured transition spec at half the configured duration, and every
+	 * moving view is rendered from a hardware layer.
+	 */
+	LAYERED,
+
+	/**
+	 * Transitions are not animated.
+	 */
+	INSTANT
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import static com.matthewtamlin.vertigo.library.TransitionQuality.FULL;
+import static com.matthewtamlin.vertigo.library.TransitionQuality.INSTANT;
+
+/**
+ * Observes the frames of animated transitions and chooses the quality level for subsequent
+ * transitions. The quality is lowered after consecutive transitions drop too many frames, and
+ * raised after consecutive transitions run smoothly. Transitions at the lowest level are not
+ * animated and cannot be measured, so after a number of instant transitions the controller probes
+ * the level above.
+ */
+final class TransitionQualityController {
+	/**
+	 * The fraction of frames which can be dropped before a transition is considered janky.
+	 */
+	private static final float MAX_DROPPED_FRAME_FRACTION = 0.2f;
+
+	/**
+	 * The number of consecutive janky transitions which cause the quality to be lowered.
+	 */
+	private static final int JANKY_TRANSITIONS_TO_STEP_DOWN = 2;
+
+	/**
+	 * The number of consecutive smooth transitions which cause the quality to be raised.
+	 */
+	private static final int SMOOTH_TRANSITIONS_TO_STEP_UP = 5;
+
+	/**
+	 * The number of instant transitions after which the level above is probed.
+	 */
+	private static final int INSTANT_TRANSITIONS_TO_PROBE = 10;
+
+	/**
+	 * The quality to use for the next transition.
+	 */
+	private TransitionQuality quality = FULL;
+
+	/**
+	 * The number of consecutive janky transitions at the current quality.
+	 */
+	private int consecutiveJankyTransitions = 0;
+
+	/**
+	 * The number of consecutive smooth or instant transitions at the current quality.
+	 */
+	private int consecutiveSmoothTransitions = 0;
+
+	/**
+	 * The expected interval between frames, measured in milliseconds.
+	 */
+	private float frameIntervalMs;
+
+	/**
+	 * The time of the last observed frame of the current transition, measured in milliseconds. -1
+	 * if no frames have been observed yet.
+	 */
+	private long lastFrameTimeMs = -1;
+
+	/**
+	 * The number of frames which should have been rendered during the current transition.
+	 */
+	private int expectedFrames;
+
+	/**
+	 * The number of frames which were dropped during the current transition.
+	 */
+	private int droppedFrames;
+
+	/**
+	 * @return the quality to use for the next transition, not null
+	 */
+	public TransitionQuality getQuality() {
+		return quality;
+	}
+
+	/**
+	 * Restores the highest quality and discards all observations.
+	 */
+	public void reset() {
+		quality = FULL;
+		consecutiveJankyTransitions = 0;
+		consecutiveSmoothTransitions = 0;
+	}
+
+	/**
+	 * Called when an animated transition starts.
+	 *
+	 * @param displayRefreshRate
+	 * 		the refresh rate of the display, measured in frames per second
+	 */
+	public void onTransitionStarted(final float displayRefreshRate) {
+		frameIntervalMs = 1000 / (displayRefreshRate > 0 ? displayRefreshRate : 60);
+		lastFrameTimeMs = -1;
+		expectedFrames = 0;
+		droppedFrames = 0;
+	}
+
+	/**
+	 * Called on every frame of an animated transition.
+	 *
+	 * @param frameTimeMs
+	 * 		the time of the frame, measured in milliseconds
+	 */
+	public void onTransitionFrame(final long frameTimeMs) {
+		if (lastFrameTimeMs != -1) {
+			final int framesElapsed = Math.max(1, Math.round((frameTimeMs - lastFrameTimeMs) /
+					frameIntervalMs));
+
+			expectedFrames += framesElapsed;
+			droppedFrames += framesElapsed - 1;
+		}
+
+		lastFrameTimeMs = frameTimeMs;
+	}
+
+	/**
+	 * Called when an animated transition ends. The quality is adjusted based on the frames
+	 * observed during the transition.
+	 */
+	public void onAnimatedTransitionEnded() {
+		if (expectedFrames == 0) {
+			return;
+		}
+
+		if (droppedFrames > expectedFrames * MAX_DROPPED_FRAME_FRACTION) {
+			consecutiveSmoothTransitions = 0;
+
+			if (++consecutiveJankyTransitions >= JANKY_TRANSITIONS_TO_STEP_DOWN) {
+				stepDown();
+			}
+		} else {
+			consecutiveJankyTransitions = 0;
+
+			if (++consecutiveSmoothTransitions >= SMOOTH_TRANSITIONS_TO_STEP_UP) {
+				stepUp();
+			}
+		}
+	}
+
+	/**
+	 * Called when a transition completes without animating because of the current quality.
+	 */
+	public void onInstantTransitionEnded() {
+		if (quality == INSTANT && ++consecutiveSmoothTransitions >= INSTANT_TRANSITIONS_TO_PROBE) {
+			stepUp();
+		}
+	}
+
+	/**
+	 * Lowers the quality by one level, unless the quality is already at the lowest level.
+	 */
+	private void stepDown() {
+		if (quality.ordinal() < TransitionQuality.values().length - 1) {
+			quality = TransitionQuality.values()[quality.ordinal() + 1];
+		}
+
+		consecutiveJankyTransitions = 0;
+		consecutiveSmoothTransitions = 0;
+	}
+
+	/**
+	 * Raises the quality by one level, unless the quality is already at the highest level.
+	 */
+	private void stepUp() {
+		if (quality.ordinal() > 0) {
+			quality = TransitionQuality.values()[quality.ordinal() - 1];
+		}
+
+		consecutiveJankyTransitions = 0;
+		consecutiveSmoothTransitions = 0;
+	}
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.animation.ValueAnimator;
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.animation.AnimationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Drives the transitions of many coordinators from a single frame callback. Coordinators opt in
+ * using {@link SimpleVertigoCoordinator#setSharedSchedulerEnabled(boolean)}, after which their
+ * transitions are registered with the scheduler instead of running their own animators. This
+ * keeps the per-frame cost low when many coordinators transition at once, for example in lists
+ * and dashboards.
+ * <p>
+ * Transitions can be synchronized by starting them between calls to {@link #beginGroup()} and
+ * {@link #endGroup()}. The grouped transitions are held until the group ends, and then all start
+ * on the same frame. The methods of this class must only be called from the main thread.
+ * <p>
+ * Frames are delivered by the Choreographer from API 16, and by a main thread handler at the
+ * default animation frame rate on older versions. Unlike an animator, neither source is affected
+ * by the animator duration scale, so frames keep arriving even when animations are disabled. The
+ * clients apply the duration scale themselves.
+ */
+public final class TransitionScheduler {
+	/**
+	 * The single instance of this class, null until first requested.
+	 */
+	private static TransitionScheduler instance;
+
+	/**
+	 * The clients which receive frames. While a frame is being dispatched, clients which finish or
+	 * are unscheduled are replaced with null, and the list is compacted once the frame ends.
+	 */
+	private final List<Client> clients = new ArrayList<>();
+
+	/**
+	 * The clients which were scheduled during the current group, and are waiting for the group to
+	 * end.
+	 */
+	private final List<Client> groupedClients = new ArrayList<>();
+
+	/**
+	 * Posts frames on API 16 and above, null on older versions.
+	 */
+	private final ChoreographerFrameSource choreographerFrameSource;
+
+	/**
+	 * Posts frames below API 16, null on newer versions.
+	 */
+	private final Handler fallbackHandler;
+
+	/**
+	 * Delivers a frame when posted to {@link #fallbackHandler}.
+	 */
+	private final Runnable fallbackFrame = new Runnable() {
+		@Override
+		public void run() {
+			onFrame(AnimationUtils.currentAnimationTimeMillis());
+		}
+	};
+
+	/**
+	 * Whether or not the clock is running, in which case a frame is always pending.
+	 */
+	private boolean running = false;
+
+	/**
+	 * Whether or not a frame is currently being dispatched to the clients.
+	 */
+	private boolean dispatching = false;
+
+	/**
+	 * The number of groups which have begun but not ended.
+	 */
+	private int groupDepth = 0;
+
+	/**
+	 * @return the process-wide scheduler, not null
+	 */
+	public static TransitionScheduler getInstance() {
+		if (instance == null) {
+			instance = new TransitionScheduler();
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Constructs a new TransitionScheduler.
+	 */
+	private TransitionScheduler() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			choreographerFrameSource = new ChoreographerFrameSource();
+			fallbackHandler = null;
+		} else {
+			choreographerFrameSource = null;
+			fallbackHandler = new Handler(Looper.getMainLooper());
+		}
+	}
+
+	/**
+	 * Begins a group of synchronized transitions. Transitions scheduled before the matching call
+	 * to {@link #endGroup()} are held, and then all start on the same frame. Groups can be nested,
+	 * in which case the transitions start when the outermost group ends.
+	 */
+	public void beginGroup() {
+		groupDepth++;
+	}
+
+	/**
+	 * Ends the current group of synchronized transitions. If this ends the outermost group, all
+	 * grouped transitions start on the next frame.
+	 *
+	 * @throws IllegalStateException
+	 * 		if no group has begun
+	 */
+	public void endGroup() {
+		if (groupDepth == 0) {
+			throw new IllegalStateException("endGroup() called without a matching beginGroup().");
+		}
+
+		groupDepth--;
+
+		if (groupDepth == 0 && !groupedClients.isEmpty()) {
+			clients.addAll(groupedClients);
+			groupedClients.clear();
+			startClock();
+		}
+	}
+
+	/**
+	 * @return true if the scheduler is currently receiving frames, false otherwise; the scheduler
+	 * only receives frames while at least one transition is registered with it
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Registers a client to receive frames, starting from the next frame. If a group is in
+	 * progress, the client is held until the group ends.
+	 *
+	 * @param client
+	 * 		the client to register, not null
+	 */
+	void schedule(final Client client) {
+		checkNotNull(client, "client cannot be null.");
+
+		if (groupDepth > 0) {
+			groupedClients.add(client);
+		} else {
+			clients.add(client);
+			startClock();
+		}
+	}
+
+	/**
+	 * Unregisters a client so that it receives no further frames. Has no effect if the client is
+	 * not registered. The clock stops once no clients remain.
+	 *
+	 * @param client
+	 * 		the client to unregister, not null
+	 */
+	void unschedule(final Client client) {
+		final int index = clients.indexOf(client);
+
+		if (index != -1) {
+			if (dispatching) {
+				// Removing would shift the clients which have not yet received the frame
+				clients.set(index, null);
+			} else {
+				clients.remove(index);
+			}
+		}
+
+		groupedClients.remove(client);
+
+		if (!dispatching && clients.isEmpty()) {
+			stopClock();
+		}
+	}
+
+	/**
+	 * Starts the clock if it is not already running.
+	 */
+	private void startClock() {
+		if (!running) {
+			running = true;
+			postFrame();
+		}
+	}
+
+	/**
+	 * Stops the clock if it is running, and withdraws the pending frame.
+	 */
+	private void stopClock() {
+		if (running) {
+			running = false;
+
+			if (choreographerFrameSource != null) {
+				choreographerFrameSource.removeFrame();
+			} else {
+				fallbackHandler.removeCallbacks(fallbackFrame);
+			}
+		}
+	}
+
+	/**
+	 * Requests a call to {@link #onFrame(long)} on the next frame.
+	 */
+	private void postFrame() {
+		if (choreographerFrameSource != null) {
+			choreographerFrameSource.postFrame();
+		} else {
+			fallbackHandler.postDelayed(fallbackFrame, ValueAnimator.getFrameDelay());
+		}
+	}
+
+	/**
+	 * Called on every frame while the clock is running. Delivers the frame to the clients, then
+	 * either requests the next frame or stops the clock if no clients remain.
+	 *
+	 * @param frameTimeMs
+	 * 		the time of the frame, measured in milliseconds
+	 */
+	private void onFrame(final long frameTimeMs) {
+		if (!running) {
+			return;
+		}
+
+		dispatchFrame(frameTimeMs);
+
+		if (clients.isEmpty()) {
+			running = false;
+		} else {
+			postFrame();
+		}
+	}
+
+	/**
+	 * Delivers a frame to every registered client, and removes the clients which have finished.
+	 * Clients scheduled during the frame first receive the next frame. The clients are swept once
+	 * by index and compacted at the end, so the cost of a frame is linear in the number of
+	 * clients.
+	 *
+	 * @param frameTimeMs
+	 * 		the time of the frame, measured in milliseconds
+	 */
+	private void dispatchFrame(final long frameTimeMs) {
+		final int clientCount = clients.size();
+		dispatching = true;
+
+		try {
+			for (int i = 0; i < clientCount; i++) {
+				final Client client = clients.get(i);
+
+				// Null if the client was unscheduled by another client during this frame
+				if (client != null && client.onFrame(frameTimeMs)) {
+					clients.set(i, null);
+				}
+			}
+		} finally {
+			dispatching = false;
+			compactClients();
+		}
+	}
+
+	/**
+	 * Removes the null entries left in the clients by {@link #dispatchFrame(long)}, preserving the
+	 * order of the remaining clients.
+	 */
+	private void compactClients() {
+		int writeIndex = 0;
+
+		for (int readIndex = 0; readIndex < clients.size(); readIndex++) {
+			final Client client = clients.get(readIndex);
+
+			if (client != null) {
+				clients.set(writeIndex++, client);
+			}
+		}
+
+		clients.subList(writeIndex, clients.size()).clear();
+	}
+
+	/**
+	 * Receives frames from the scheduler.
+	 */
+	interface Client {
+		/**
+		 * Called once per frame while the client is registered.
+		 *
+		 * @param frameTimeMs
+		 * 		the time of the frame, measured in milliseconds
+		 * @return true if the client has finished and should receive no further frames, false
+		 * otherwise
+		 */
+		boolean onFrame(long frameTimeMs);
+	}
+
+	/**
+	 * Posts frames to the scheduler using the Choreographer. Kept in a separate class so that the
+	 * Choreographer is never loaded below API 16.
+	 */
+	@TargetApi(16)
+	private class ChoreographerFrameSource implements Choreographer.FrameCallback {
+		/**
+		 * The number of nanoseconds in a millisecond.
+		 */
+		private static final long NANOS_PER_MILLI = 1000000;
+
+		@Override
+		public void doFrame(final long frameTimeNanos) {
+			onFrame(frameTimeNanos / NANOS_PER_MILLI);
+		}
+
+		/**
+		 * Requests a callback on the next frame.
+		 */
+		public void postFrame() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		/**
+		 * Withdraws a pending callback.
+		 */
+		public void removeFrame() {
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.vertigo.library;
+
+import android.view.View;
+
+/**
+ * Defines how a VertigoCoordinator moves views between the up and down positions. Transitions
+ * only modify the drawing properties of views (translation, alpha, scale etc.) so they never
+ * trigger layout passes, and views can be rendered from hardware layers while they change.
+ */
+public interface TransitionSpec {
+	/**
+	 * Applies the transition to a view. This method is called on every animation frame for every
+	 * moving view, so implementations should avoid allocating objects.
+	 *
+	 * @param view
+	 * 		the view to modify, not null
+	 * @param downFraction
+	 * 		how far the view is through the transition, where 0 is the up position and 1 is the down
+	 * 		position
+	 */
+	public void applyTransition(View view, float downFraction);
+
+	/**
+	 * Restores all properties modified by {@link #applyTransition(View, float)} to their default
+	 * values. This method is called when the coordinator switches to a different TransitionSpec.
+	 *
+	 * @param view
+	 * 		the view to restore, not null
+	 */
+	public void clearTransition(View view);
+
+	/**
+	 * Determines whether or not a view should be rendered into a hardware layer while it
+	 * transitions. Layers make it cheap to change the alpha, scale and rotation of complex views,
+	 * however they use additional memory and must be redrawn if the content of the view changes.
+	 *
+	 * @param view
+	 * 		the view which is about to transition, not null
+	 * @return true if the view should be rendered into a hardware layer, false otherwise
+	 */
+	public boolean shouldUseHardwareLayer(View view);
+}
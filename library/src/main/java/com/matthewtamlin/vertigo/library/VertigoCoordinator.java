@@ -16,6 +16,8 @@
 
 package com.matthewtamlin.vertigo.library;
 
+import android.view.View;
+
 import java.util.Set;
 
 /**
@@ -24,7 +26,8 @@ import java.util.Set;
  * coordinator). Multiple views may exist in the up position simultaneously, but only one will be in
  * front of the others. This view is declared active, and all others are considered inactive. To
  * change the active view, {@link #makeViewActive(String, boolean, ActiveViewChangedListener)} can
- * be called.
+ * be called. Unless otherwise stated, the methods of this interface must only be called from the
+ * main thread.
  */
 public interface VertigoCoordinator {
 	/**
@@ -39,6 +42,23 @@ public interface VertigoCoordinator {
 	 */
 	public void registerViewForCoordination(VertigoView view, String key);
 
+	/**
+	 * Registers a view which does not implement VertigoView for coordination. The coordinator
+	 * tracks the state of the view itself, starting in the inactive state, and reports state
+	 * changes to the supplied listener. The view must already be contained in the coordinator and
+	 * it must be in the up position. Calls to {@link #getView(String)} return a {@link
+	 * PlainVertigoView} for the view.
+	 *
+	 * @param view
+	 * 		the view to register, not null
+	 * @param key
+	 * 		a String key which uniquely identifies the view, not null
+	 * @param listener
+	 * 		the listener to notify when the state of the view changes, may be null
+	 */
+	public void registerViewForCoordination(View view, String key,
+			PlainVertigoView.StateListener listener);
+
 	/**
 	 * Unregisters a view from coordination. The view will not be removed from the coordination,
 	 * however it will no longer be modified by calls to {@link #makeViewActive(String, boolean,
@@ -78,14 +98,53 @@ public interface VertigoCoordinator {
 	 * @param key
 	 * 		the key for the view to move
 	 * @param animate
-	 * 		whether or not views should be animated when sliding up and down
+	 * 		whether or not views should be animated when sliding up and down, ignored if the system
+	 * 		settings have disabled animations
 	 * @param listener
 	 * 		a listener to call when all changes have completed, may be null
 	 */
 	public void makeViewActive(String key, boolean animate, ActiveViewChangedListener listener);
 
 	/**
-	 * Changes the length of time to use when sliding views up and down.
+	 * Makes a view active by moving the coordinated views, and returns a handle which tracks the
+	 * request. The handle always finishes with a definite outcome: completed if the view becomes
+	 * active or is already active, dropped if the request is rejected, superseded if another
+	 * operation abandons the transition, or cancelled if {@link TransitionHandle#cancel()} is
+	 * called.
+	 *
+	 * @param key
+	 * 		the key for the view to move
+	 * @param animate
+	 * 		whether or not views should be animated when sliding up and down, ignored if the system
+	 * 		settings have disabled animations
+	 * @return a handle which tracks the request, not null
+	 */
+	public TransitionHandle makeViewActive(String key, boolean animate);
+
+	/**
+	 * Registers a listener to be notified whenever the active view changes. Registered listeners
+	 * are notified after the listener passed to {@link #makeViewActive(String, boolean,
+	 * ActiveViewChangedListener)}. Registering a listener which is already registered has no
+	 * effect.
+	 *
+	 * @param listener
+	 * 		the listener to register, not null
+	 */
+	public void addActiveViewChangedListener(ActiveViewChangedListener listener);
+
+	/**
+	 * Unregisters a listener which was registered using {@link
+	 * #addActiveViewChangedListener(ActiveViewChangedListener)}. Removing a listener which is not
+	 * registered has no effect.
+	 *
+	 * @param listener
+	 * 		the listener to unregister, may be null
+	 */
+	public void removeActiveViewChangedListener(ActiveViewChangedListener listener);
+
+	/**
+	 * Changes the length of time to use when sliding views up and down. The duration is scaled by
+	 * the animator duration scale set in the system settings.
 	 *
 	 * @param animationDurationMs
 	 * 		the length of time, measured in milliseconds
@@ -97,6 +156,35 @@ public interface VertigoCoordinator {
 	 */
 	public int getAnimationDurationMs();
 
+	/**
+	 * Changes the transition used to move views between the up and down positions. Views which are
+	 * not currently moving are immediately converted to the new transition.
+	 *
+	 * @param transitionSpec
+	 * 		the transition to use, not null
+	 */
+	public void setTransitionSpec(TransitionSpec transitionSpec);
+
+	/**
+	 * @return the transition used to move views between the up and down positions, not null
+	 */
+	public TransitionSpec getTransitionSpec();
+
+	/**
+	 * Changes the easing curve applied to transitions. The curve is evaluated once per frame and
+	 * the result is shared by every view in the transition. Transitions which are already running
+	 * continue to use the previous easing.
+	 *
+	 * @param transitionEasing
+	 * 		the easing to use, not null
+	 */
+	public void setTransitionEasing(TransitionEasing transitionEasing);
+
+	/**
+	 * @return the easing curve applied to transitions, not null
+	 */
+	public TransitionEasing getTransitionEasing();
+
 	/**
 	 * A callback to be delivered when the active view changes.
 	 */